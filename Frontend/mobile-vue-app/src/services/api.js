@@ -114,7 +114,9 @@ export const apiService = {
         ...signalement,
         photos: Array.isArray(signalement.photos) ? signalement.photos : [],
         dateSignalement: new Date().toISOString(),
-        statut: 'nouveau'
+        statut: 'nouveau',
+        // Toujours présent : le backend ne lit que les documents où il vaut false
+        importedToSQL: false
       };
       
       console.log('📤 Données à envoyer:', { 
@@ -1,5 +1,6 @@
 package com.cloud.auth;
 
+import com.cloud.dto.UserAccount;
 import com.cloud.model.User;
 
 public class AuthResponse {
@@ -33,6 +34,12 @@ public class AuthResponse {
             this.email = user.getEmail();
             this.role = user.getRole();
         }
+
+        public UserInfo(UserAccount account) {
+            this.id = account.getId();
+            this.email = account.getEmail();
+            this.role = account.getRole();
+        }
         
         // Getters
         public Long getId() { return id; }
@@ -0,0 +1,50 @@
+package com.cloud.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Caches Caffeine des lectures fréquentes. Chaque cache a sa propre taille ;
+ * les statistiques (hits/misses) sont exposées par /api/admin/cache/stats.
+ * Les évictions faites dans une transaction ne s'appliquent qu'après le commit,
+ * sinon une lecture concurrente pourrait remettre en cache l'ancienne valeur.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    public static final String SIGNALEMENTS = "signalements";
+    public static final String SIGNALEMENT_DETAIL = "signalementDetail";
+    public static final String PHOTOS = "photosBySignalement";
+    public static final String USERS_BY_EMAIL = "usersByEmail";
+
+    private static final Duration TTL = Duration.ofMinutes(10);
+
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager manager = new CaffeineCacheManager();
+        // Pas de mise en cache des absences (signalement ou utilisateur inexistant)
+        manager.setAllowNullValues(false);
+        // Liste complète, par version des données : seule la dernière est gardée
+        manager.registerCustomCache(SIGNALEMENTS, build(1));
+        manager.registerCustomCache(SIGNALEMENT_DETAIL, build(2_000));
+        manager.registerCustomCache(PHOTOS, build(2_000));
+        manager.registerCustomCache(USERS_BY_EMAIL, build(1_000));
+        return new TransactionAwareCacheManagerProxy(manager);
+    }
+
+    private static com.github.benmanes.caffeine.cache.Cache<Object, Object> build(long maximumSize) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(TTL)
+                .recordStats()
+                .build();
+    }
+}
@@ -0,0 +1,12 @@
+package com.cloud.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Active les traitements périodiques (@Scheduled), ex. rafraîchissement des agrégats
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig {
+}
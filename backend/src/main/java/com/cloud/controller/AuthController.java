@@ -1,5 +1,6 @@
 package com.cloud.controller;
 
+import com.cloud.dto.UserAccount;
 import com.cloud.model.User;
 import com.cloud.auth.AuthResponse;
 import com.cloud.service.AuthService;
@@ -78,7 +79,7 @@ public class AuthController {
             
             if (jwtService.isTokenValid(token)) {
                 String email = jwtService.extractUsername(token);
-                User user = userRepository.findByEmail(email).orElse(null);
+                UserAccount user = userRepository.findAccountByEmail(email).orElse(null);
                 
                 if (user != null && !user.isLocked()) {
                     return ResponseEntity.ok(Map.of(
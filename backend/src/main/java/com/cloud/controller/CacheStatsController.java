@@ -0,0 +1,55 @@
+package com.cloud.controller;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.transaction.TransactionAwareCacheDecorator;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+@Api(tags = "Administration des caches")
+@RestController
+@RequestMapping("/api/admin/cache")
+@PreAuthorize("hasAuthority('ROLE_MANAGER')")
+public class CacheStatsController {
+
+    private final CacheManager cacheManager;
+
+    public CacheStatsController(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @ApiOperation("Hits, misses, évictions et taille de chaque cache")
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (String name : new TreeSet<>(cacheManager.getCacheNames())) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache instanceof TransactionAwareCacheDecorator decorator) {
+                cache = decorator.getTargetCache();
+            }
+            if (!(cache instanceof CaffeineCache caffeine)) {
+                continue;
+            }
+            CacheStats stats = caffeine.getNativeCache().stats();
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("size", caffeine.getNativeCache().estimatedSize());
+            entry.put("hits", stats.hitCount());
+            entry.put("misses", stats.missCount());
+            entry.put("hitRate", stats.hitRate());
+            entry.put("evictions", stats.evictionCount());
+            result.put(name, entry);
+        }
+        return ResponseEntity.ok(result);
+    }
+}
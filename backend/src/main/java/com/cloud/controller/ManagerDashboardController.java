@@ -0,0 +1,33 @@
+package com.cloud.controller;
+
+import com.cloud.service.ManagerDashboardService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/manager")
+@PreAuthorize("hasAuthority('ROLE_MANAGER')")
+public class ManagerDashboardController {
+    private final ManagerDashboardService dashboardService;
+
+    public ManagerDashboardController(ManagerDashboardService dashboardService) {
+        this.dashboardService = dashboardService;
+    }
+
+    /**
+     * GET /api/manager/dashboard
+     * Résumé, délais de traitement, comptes bloqués et signalements en un seul aller-retour
+     */
+    @GetMapping("/dashboard")
+    public ResponseEntity<Map<String, Object>> getDashboard() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(dashboardService.getDashboard());
+    }
+}
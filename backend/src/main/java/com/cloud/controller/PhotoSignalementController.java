@@ -1,5 +1,6 @@
 package com.cloud.controller;
 
+import com.cloud.dto.PhotoView;
 import com.cloud.model.PhotoSignalement;
 import com.cloud.service.PhotoSignalementService;
 import org.springframework.http.HttpStatus;
@@ -27,8 +28,8 @@ public class PhotoSignalementController {
      * Récupère toutes les photos d'un signalement
      */
     @GetMapping
-    public ResponseEntity<List<PhotoSignalement>> getPhotos(@PathVariable String idSignalement) {
-        List<PhotoSignalement> photos = photoService.getPhotosBySignalement(idSignalement);
+    public ResponseEntity<List<PhotoView>> getPhotos(@PathVariable String idSignalement) {
+        List<PhotoView> photos = photoService.getPhotosBySignalement(idSignalement);
         return ResponseEntity.ok(photos);
     }
 
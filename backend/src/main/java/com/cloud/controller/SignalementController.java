@@ -1,13 +1,40 @@
 package com.cloud.controller;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import com.cloud.dto.BoundingBox;
+import com.cloud.dto.SignalementMarker;
+import com.cloud.dto.SignalementStatutEvent;
+import com.cloud.dto.SignalementView;
 import com.cloud.model.Signalement;
+import com.cloud.service.SignalementClusterIndex;
+import com.cloud.service.SignalementDataVersion;
+import com.cloud.service.SignalementExportService;
 import com.cloud.service.SignalementService;
-import com.cloud.service.FireStoreService;
+import com.cloud.service.SignalementStatutHistory;
+import com.cloud.service.SignalementSpatialIndex;
+import com.cloud.service.SignalementStreamService;
+import com.cloud.service.SingleFlight;
+import com.cloud.service.PhotoSignalementService;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -16,25 +43,272 @@ import org.springframework.security.access.prepost.PreAuthorize;
 @RestController
 @RequestMapping("/api/signalements")
 public class SignalementController {
+    // Attente maximale d'une requête qui se greffe sur une lecture complète déjà en cours
+    private static final Duration LIST_WAIT = Duration.ofSeconds(10);
+
     private final SignalementService signalementService;
-    private final FireStoreService fireStoreService;
+    private final SignalementSpatialIndex spatialIndex;
+    private final SignalementClusterIndex clusterIndex;
+    private final SignalementExportService exportService;
+    private final SignalementDataVersion dataVersion;
+    private final PhotoSignalementService photoService;
+    private final SignalementStreamService streamService;
+    private final SignalementStatutHistory statutHistory;
+    private final SingleFlight singleFlight;
 
-    public SignalementController(SignalementService signalementService, FireStoreService fireStoreService) {
+    public SignalementController(SignalementService signalementService,
+                                 SignalementSpatialIndex spatialIndex, SignalementClusterIndex clusterIndex,
+                                 SignalementExportService exportService, SignalementDataVersion dataVersion,
+                                 PhotoSignalementService photoService, SignalementStreamService streamService,
+                                 SignalementStatutHistory statutHistory, SingleFlight singleFlight) {
         this.signalementService = signalementService;
-        this.fireStoreService = fireStoreService;
+        this.spatialIndex = spatialIndex;
+        this.clusterIndex = clusterIndex;
+        this.exportService = exportService;
+        this.dataVersion = dataVersion;
+        this.photoService = photoService;
+        this.streamService = streamService;
+        this.statutHistory = statutHistory;
+        this.singleFlight = singleFlight;
     }
 
     @GetMapping
-    public ResponseEntity<List<Signalement>> getAllSignalements() {
-        List<Signalement> signalements = signalementService.getAllSignalements();
-        return ResponseEntity.ok(signalements);
+    public ResponseEntity<byte[]> getAllSignalements(WebRequest request) {
+        String etag = dataVersion.getETag();
+        long lastModified = dataVersion.getLastModified();
+        if (request.checkNotModified(etag)) {
+            return null; // 304, sans requête SQL
+        }
+        // Rafraîchissements simultanés : une seule lecture et une seule sérialisation par version
+        byte[] body;
+        try {
+            body = singleFlight.json("signalements:" + etag, LIST_WAIT, signalementService::getAllSignalementViews);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache())
+                .eTag(etag)
+                .lastModified(lastModified)
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    /**
+     * GET /api/signalements?limit=50&cursor=...&statut=&entreprise=&niveau=&from=&to=
+     * Variante paginée par curseur, sélectionnée dès que "limit" est présent.
+     * from/to sont des dates ISO 8601 (ex: 2026-01-31T00:00:00Z), to est exclusif.
+     */
+    @GetMapping(params = "limit")
+    public ResponseEntity<?> getSignalementsPage(
+            @RequestParam Integer limit,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String statut,
+            @RequestParam(required = false) String entreprise,
+            @RequestParam(required = false) Integer niveau,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+            WebRequest request) {
+        String etag = dataVersion.getETag();
+        long lastModified = dataVersion.getLastModified();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        try {
+            return ResponseEntity.ok()
+                    .cacheControl(CacheControl.noCache())
+                    .eTag(etag)
+                    .lastModified(lastModified)
+                    .body(signalementService.getSignalementsPage(cursor, limit, statut, entreprise, niveau,
+                            from != null ? Timestamp.from(from) : null,
+                            to != null ? Timestamp.from(to) : null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/signalements/bbox?minLat=&minLng=&maxLat=&maxLng=
+     * Signalements visibles dans la zone affichée par la carte (index en mémoire)
+     */
+    @GetMapping("/bbox")
+    public ResponseEntity<?> getSignalementsInBoundingBox(@RequestParam double minLat, @RequestParam double minLng,
+                                                          @RequestParam double maxLat, @RequestParam double maxLng) {
+        try {
+            List<SignalementMarker> markers = spatialIndex.findInBoundingBox(
+                    new BoundingBox(minLat, minLng, maxLat, maxLng));
+            return ResponseEntity.ok(markers);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/signalements/radius?lat=&lng=&radiusM=
+     * Signalements autour d'un point, triés par distance
+     */
+    @GetMapping("/radius")
+    public ResponseEntity<?> getSignalementsWithinRadius(@RequestParam double lat, @RequestParam double lng,
+                                                         @RequestParam double radiusM) {
+        try {
+            return ResponseEntity.ok(spatialIndex.findWithinRadius(lat, lng, radiusM));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/signalements/clusters?z=12&bbox=minLng,minLat,maxLng,maxLat
+     * Marqueurs regroupés selon le zoom (nombre, surface, budget, statut dominant)
+     */
+    @GetMapping("/clusters")
+    public ResponseEntity<?> getClusters(@RequestParam int z, @RequestParam String bbox) {
+        try {
+            return ResponseEntity.ok(clusterIndex.getClusters(z, BoundingBox.parse(bbox)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * GET /api/signalements/export?format=ndjson|json
+     * Export complet en flux (un objet par ligne en NDJSON, ou tableau JSON chunké)
+     */
+    @GetMapping("/export")
+    @PreAuthorize("hasAuthority('ROLE_MANAGER')")
+    public ResponseEntity<StreamingResponseBody> exportSignalements(
+            @RequestParam(defaultValue = "ndjson") String format) {
+        SignalementExportService.Format exportFormat = "json".equalsIgnoreCase(format)
+                ? SignalementExportService.Format.JSON
+                : SignalementExportService.Format.NDJSON;
+        MediaType contentType = exportFormat == SignalementExportService.Format.JSON
+                ? MediaType.APPLICATION_JSON
+                : MediaType.parseMediaType("application/x-ndjson");
+        String filename = exportFormat == SignalementExportService.Format.JSON ? "signalements.json" : "signalements.ndjson";
+
+        StreamingResponseBody body = out -> exportService.export(out, exportFormat);
+        return ResponseEntity.ok()
+                .contentType(contentType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    /**
+     * GET /api/signalements/stream?bbox=minLng,minLat,maxLng,maxLat
+     * Flux SSE des créations/modifications/suppressions (bbox optionnelle).
+     * Événements "created"/"updated" (marqueur), "deleted" ({idSignalement}) et "reset"
+     * ({since} : rattraper via /changes?since=), commentaire "ping" toutes les 25 s.
+     */
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(@RequestParam(required = false) String bbox,
+                             @RequestHeader(name = "Last-Event-ID", required = false) String lastEventId) {
+        BoundingBox box;
+        try {
+            box = bbox != null ? BoundingBox.parse(bbox) : null;
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        try {
+            return streamService.subscribe(box, lastEventId);
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage());
+        }
+    }
+
+    /**
+     * GET /api/signalements/search?q=nid de poule&limit=20
+     * Recherche plein texte (accents et pluriels ignorés), du plus au moins pertinent
+     */
+    @GetMapping("/search")
+    public ResponseEntity<?> search(@RequestParam String q, @RequestParam(required = false) Integer limit) {
+        if (q.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Paramètre q vide"));
+        }
+        return ResponseEntity.ok(signalementService.search(q, limit));
+    }
+
+    /**
+     * GET /api/signalements/changes?since=&limit=
+     * Synchronisation différentielle : créations/modifications et suppressions
+     * depuis le jeton since (absent = tout). Renvoyer nextToken au prochain appel.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<?> getChanges(@RequestParam(required = false) String since,
+                                        @RequestParam(required = false) Integer limit) {
+        long sinceVersion;
+        try {
+            sinceVersion = since == null || since.isBlank() ? -1 : Long.parseLong(since);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Jeton de synchronisation invalide"));
+        }
+        return ResponseEntity.ok(signalementService.getChangesSince(sinceVersion, limit));
+    }
+
+    /**
+     * GET /api/signalements/statuts?at=2026-01-31T00:00:00Z
+     * Statut de chaque signalement à la date donnée (dernier changement avant at)
+     */
+    @GetMapping("/statuts")
+    public ResponseEntity<List<SignalementStatutEvent>> getStatutsAt(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant at) {
+        return ResponseEntity.ok(statutHistory.getStatutsAt(Timestamp.from(at)));
+    }
+
+    /**
+     * GET /api/signalements/{id}/historique
+     * Tous les changements de statut du signalement, du plus ancien au plus récent
+     */
+    @GetMapping("/{id}/historique")
+    public ResponseEntity<List<SignalementStatutEvent>> getHistorique(@PathVariable String id) {
+        return ResponseEntity.ok(statutHistory.getTimeline(id));
+    }
+
+    /**
+     * GET /api/signalements/{id}
+     * Détail d'un signalement avec le résumé de son auteur
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getSignalement(@PathVariable String id) {
+        return signalementService.getSignalementDetail(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Signalement introuvable")));
+    }
+
+    /**
+     * DELETE /api/signalements/{id}
+     * Supprime le signalement et ses photos ; les clients l'apprennent via /changes
+     */
+    @DeleteMapping("/{id}")
+    @PreAuthorize("hasAuthority('ROLE_MANAGER')")
+    public ResponseEntity<?> deleteSignalement(@PathVariable String id) {
+        if (!signalementService.deleteSignalement(id)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Signalement introuvable"));
+        }
+        photoService.deleteAllPhotosBySignalement(id);
+        return ResponseEntity.ok(Map.of("message", "Signalement supprimé"));
+    }
+
+    /**
+     * PUT /api/signalements/batch
+     * Mises à jour partielles en lot (liste de signalements avec idSignalement), appliquées
+     * en une transaction ; les identifiants inconnus sont créés.
+     */
+    @PutMapping("/batch")
+    @PreAuthorize("hasAuthority('ROLE_MANAGER')")
+    public ResponseEntity<?> updateSignalements(@RequestBody List<Signalement> body) {
+        try {
+            // Export Firestore par l'outbox (FirestoreOutbox), comme toute écriture
+            List<Signalement> updated = signalementService.upsertBatch(body);
+            return ResponseEntity.ok(Map.of("updatedCount", updated.size()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<Signalement> updateSignalement(@PathVariable String id, @RequestBody Signalement body) {
+    public ResponseEntity<SignalementView> updateSignalement(@PathVariable String id, @RequestBody Signalement body) {
         Signalement updated = signalementService.updateSignalement(id, body);
-        // synchroniser vers Firestore
-        fireStoreService.saveSignalementToFirestore(updated);
-        return ResponseEntity.ok(updated);
+        return ResponseEntity.ok(SignalementView.from(updated));
     }
 }
@@ -1,95 +1,172 @@
 package com.cloud.controller;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.security.access.prepost.PreAuthorize;
-import java.util.HashMap;
+import org.springframework.web.context.request.WebRequest;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.List;
-import com.cloud.model.Signalement;
-import com.cloud.service.SignalementService;
+import com.cloud.dto.BoundingBox;
+import com.cloud.service.SignalementColumnStore;
+import com.cloud.service.SignalementColumnStore.Dimension;
+import com.cloud.service.SignalementDataVersion;
+import com.cloud.service.SignalementDelayHistograms;
+import com.cloud.service.SignalementHeatmapIndex;
+import com.cloud.service.SignalementRollupService;
+import com.cloud.service.SignalementStats;
+import com.cloud.service.SingleFlight;
 
 @RestController
 @RequestMapping("/api/stats")
 @PreAuthorize("hasAuthority('ROLE_MANAGER')")
 public class StatsController {
-    private final SignalementService signalementService;
+    // Attente maximale d'une requête qui se greffe sur un calcul de tendances déjà en cours
+    private static final Duration TRENDS_WAIT = Duration.ofSeconds(10);
 
-    public StatsController(SignalementService signalementService) {
-        this.signalementService = signalementService;
+    private final SignalementStats signalementStats;
+    private final SignalementDelayHistograms delayHistograms;
+    private final SignalementRollupService rollupService;
+    private final SignalementColumnStore columnStore;
+    private final SignalementHeatmapIndex heatmapIndex;
+    private final SignalementDataVersion dataVersion;
+    private final SingleFlight singleFlight;
+
+    public StatsController(SignalementStats signalementStats, SignalementDelayHistograms delayHistograms,
+                           SignalementRollupService rollupService, SignalementColumnStore columnStore,
+                           SignalementHeatmapIndex heatmapIndex, SignalementDataVersion dataVersion,
+                           SingleFlight singleFlight) {
+        this.signalementStats = signalementStats;
+        this.delayHistograms = delayHistograms;
+        this.rollupService = rollupService;
+        this.columnStore = columnStore;
+        this.heatmapIndex = heatmapIndex;
+        this.dataVersion = dataVersion;
+        this.singleFlight = singleFlight;
     }
 
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getStats() {
-        List<Signalement> signalements = signalementService.getAllSignalements();
-        int nbPoints = signalements.size();
-        double totalSurface = signalements.stream().mapToDouble(s -> s.getSurfaceM2() != null ? s.getSurfaceM2() : 0).sum();
-        double totalBudget = signalements.stream().mapToDouble(s -> s.getBudget() != null ? s.getBudget() : 0).sum();
-        long nbTermine = signalements.stream().filter(s -> "termine".equalsIgnoreCase(s.getStatut())).count();
-        int avancement = nbPoints > 0 ? (int) Math.round((nbTermine * 100.0) / nbPoints) : 0;
-
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("nbPoints", nbPoints);
-        stats.put("totalSurface", totalSurface);
-        stats.put("avancement", avancement);
-        stats.put("totalBudget", totalBudget);
-        return ResponseEntity.ok(stats);
+    public ResponseEntity<Map<String, Object>> getStats(WebRequest request) {
+        String etag = dataVersion.getETag();
+        long lastModified = dataVersion.getLastModified();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return conditional(signalementStats.getResume(), etag, lastModified);
     }
 
     @GetMapping("/traitement")
-    public ResponseEntity<Map<String, Object>> getTraitementStats() {
-        List<Signalement> signalements = signalementService.getAllSignalements();
-        
-        // Calculer les temps moyens de traitement
-        long totalDelaiNouveauEnCours = 0;
-        long totalDelaiEnCoursTermine = 0;
-        long totalDelaiNouveauTermine = 0;
-        int countNouveauEnCours = 0;
-        int countEnCoursTermine = 0;
-        int countNouveauTermine = 0;
+    public ResponseEntity<Map<String, Object>> getTraitementStats(WebRequest request) {
+        String etag = dataVersion.getETag();
+        long lastModified = dataVersion.getLastModified();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return conditional(signalementStats.getTraitement(), etag, lastModified);
+    }
+
+    /**
+     * GET /api/stats/traitement/distribution?entreprise=&niveau=
+     * p50/p90/p99/max et distribution des délais de chaque étape, en jours
+     */
+    @GetMapping("/traitement/distribution")
+    public ResponseEntity<Map<String, Object>> getTraitementDistribution(
+            @RequestParam(required = false) String entreprise,
+            @RequestParam(required = false) Integer niveau,
+            WebRequest request) {
+        String etag = dataVersion.getETag();
+        long lastModified = dataVersion.getLastModified();
+        if (request.checkNotModified(etag)) {
+            return null;
+        }
+        return conditional(delayHistograms.getDistributions(entreprise, niveau), etag, lastModified);
+    }
+
+    /**
+     * GET /api/stats/trends?granularity=day|week|month&from=2026-01-01&to=2026-03-31&entreprise=
+     * Nouveaux, terminés, budget engagé et backlog par période (90 derniers jours par défaut).
+     * Lu dans les agrégats journaliers, rafraîchis toutes les minutes.
+     */
+    @GetMapping("/trends")
+    public ResponseEntity<?> getTrends(
+            @RequestParam(defaultValue = "day") String granularity,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String entreprise) {
+        LocalDate end = to != null ? to : LocalDate.now();
+        LocalDate start = from != null ? from : end.minusDays(90);
+        String key = "trends:" + granularity + ":" + start + ":" + end + ":" + entreprise;
+        try {
+            byte[] body = singleFlight.json(key, TRENDS_WAIT,
+                    () -> rollupService.getTrends(granularity, start, end, entreprise));
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
 
-        for (Signalement s : signalements) {
-            // Délai nouveau -> en cours
-            if (s.getDateNouveau() != null && s.getDateEnCours() != null) {
-                long delai = s.getDateEnCours().getTime() - s.getDateNouveau().getTime();
-                totalDelaiNouveauEnCours += delai;
-                countNouveauEnCours++;
+    /**
+     * GET /api/stats/analytics?groupBy=statut,entreprise,niveau,mois&statut=&entreprise=&niveau=&from=2026-01&to=2026-06
+     * Nombre, surface et budget par groupe, calculés sur la copie en colonnes en mémoire
+     */
+    @GetMapping("/analytics")
+    public ResponseEntity<?> getAnalytics(
+            @RequestParam(required = false) String groupBy,
+            @RequestParam(required = false) String statut,
+            @RequestParam(required = false) String entreprise,
+            @RequestParam(required = false) Integer niveau,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+            @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to) {
+        try {
+            Map<Dimension, Object> filters = new EnumMap<>(Dimension.class);
+            if (statut != null) {
+                filters.put(Dimension.STATUT, statut);
             }
-            
-            // Délai en cours -> terminé
-            if (s.getDateEnCours() != null && s.getDateTermine() != null) {
-                long delai = s.getDateTermine().getTime() - s.getDateEnCours().getTime();
-                totalDelaiEnCoursTermine += delai;
-                countEnCoursTermine++;
+            if (entreprise != null) {
+                filters.put(Dimension.ENTREPRISE, entreprise);
             }
-            
-            // Délai total nouveau -> terminé
-            if (s.getDateNouveau() != null && s.getDateTermine() != null) {
-                long delai = s.getDateTermine().getTime() - s.getDateNouveau().getTime();
-                totalDelaiNouveauTermine += delai;
-                countNouveauTermine++;
+            if (niveau != null) {
+                filters.put(Dimension.NIVEAU, niveau);
             }
+            return ResponseEntity.ok(columnStore.aggregate(
+                    SignalementColumnStore.parseDimensions(groupBy), filters, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         }
+    }
 
-        // Convertir en jours (1 jour = 86400000 millisecondes)
-        double moyenneNouveauEnCours = countNouveauEnCours > 0 
-            ? (totalDelaiNouveauEnCours / (double) countNouveauEnCours) / 86400000.0 
-            : 0;
-        double moyenneEnCoursTermine = countEnCoursTermine > 0 
-            ? (totalDelaiEnCoursTermine / (double) countEnCoursTermine) / 86400000.0 
-            : 0;
-        double moyenneTotale = countNouveauTermine > 0 
-            ? (totalDelaiNouveauTermine / (double) countNouveauTermine) / 86400000.0 
-            : 0;
+    /**
+     * GET /api/stats/heatmap?precision=6&bbox=minLng,minLat,maxLng,maxLat
+     * Nombre, surface, budget et niveau moyen par cellule geohash (précision 3 à 8, monde entier sans bbox)
+     */
+    @GetMapping("/heatmap")
+    public ResponseEntity<?> getHeatmap(@RequestParam(defaultValue = "6") int precision,
+                                        @RequestParam(required = false) String bbox) {
+        try {
+            BoundingBox box = bbox != null ? BoundingBox.parse(bbox) : new BoundingBox(-90, -180, 90, 180);
+            return ResponseEntity.ok(heatmapIndex.getCells(precision, box));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
 
-        Map<String, Object> stats = new HashMap<>();
-        stats.put("moyenneNouveauEnCoursJours", Math.round(moyenneNouveauEnCours * 10) / 10.0);
-        stats.put("moyenneEnCoursTermineJours", Math.round(moyenneEnCoursTermine * 10) / 10.0);
-        stats.put("moyenneTotaleJours", Math.round(moyenneTotale * 10) / 10.0);
-        stats.put("nombreSignalementsAnalyses", countNouveauTermine);
-        
-        return ResponseEntity.ok(stats);
+    // Réponse privée (données manager) à revalider à chaque fois via If-None-Match
+    private static ResponseEntity<Map<String, Object>> conditional(Map<String, Object> body, String etag, long lastModified) {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .eTag(etag)
+                .lastModified(lastModified)
+                .body(body);
     }
 }
@@ -0,0 +1,43 @@
+package com.cloud.controller;
+
+import com.cloud.service.SignalementTileService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@RestController
+@RequestMapping("/api/tiles")
+public class TileController {
+
+    private static final MediaType MVT = MediaType.parseMediaType("application/vnd.mapbox-vector-tile");
+
+    private final SignalementTileService tileService;
+
+    public TileController(SignalementTileService tileService) {
+        this.tileService = tileService;
+    }
+
+    /**
+     * GET /api/tiles/signalements/{z}/{x}/{y}.pbf
+     * Couche "signalements" au format Mapbox Vector Tile (attributs id, statut, niveau, avancement)
+     */
+    @GetMapping("/signalements/{z}/{x}/{y}.pbf")
+    public ResponseEntity<?> getSignalementTile(@PathVariable int z, @PathVariable int x, @PathVariable int y) {
+        try {
+            byte[] tile = tileService.getTile(z, x, y);
+            return ResponseEntity.ok()
+                    .contentType(MVT)
+                    .cacheControl(CacheControl.maxAge(30, TimeUnit.SECONDS).cachePublic())
+                    .body(tile);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.cloud.controller;
 
+import com.cloud.dto.UserAccount;
 import com.cloud.model.User;
 import com.cloud.auth.AuthResponse;
 import com.cloud.security.JwtService;
@@ -31,7 +32,7 @@ public class UserController {
             
             if (jwtService.isTokenValid(token)) {
                 String email = jwtService.extractUsername(token);
-                User user = userRepository.findByEmail(email).orElse(null);
+                UserAccount user = userRepository.findAccountByEmail(email).orElse(null);
                 
                 if (user != null) {
                     return ResponseEntity.ok(new AuthResponse.UserInfo(user));
@@ -0,0 +1,52 @@
+package com.cloud.dto;
+
+/**
+ * Rectangle géographique (degrés WGS84), bornes incluses.
+ */
+public class BoundingBox {
+    private final double minLat;
+    private final double minLng;
+    private final double maxLat;
+    private final double maxLng;
+
+    /**
+     * @throws IllegalArgumentException si les bornes sont hors limites ou inversées
+     */
+    public BoundingBox(double minLat, double minLng, double maxLat, double maxLng) {
+        if (minLat < -90 || maxLat > 90 || minLng < -180 || maxLng > 180) {
+            throw new IllegalArgumentException("Coordonnées hors limites");
+        }
+        if (minLat > maxLat || minLng > maxLng) {
+            throw new IllegalArgumentException("Bornes inversées (min > max)");
+        }
+        this.minLat = minLat;
+        this.minLng = minLng;
+        this.maxLat = maxLat;
+        this.maxLng = maxLng;
+    }
+
+    /**
+     * Lit une bbox au format "minLng,minLat,maxLng,maxLat" (ordre GeoJSON / Mapbox).
+     */
+    public static BoundingBox parse(String bbox) {
+        String[] parts = bbox.split(",");
+        if (parts.length != 4) {
+            throw new IllegalArgumentException("bbox attendu : minLng,minLat,maxLng,maxLat");
+        }
+        try {
+            return new BoundingBox(Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[0].trim()),
+                    Double.parseDouble(parts[3].trim()), Double.parseDouble(parts[2].trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bbox attendu : minLng,minLat,maxLng,maxLat", e);
+        }
+    }
+
+    public boolean contains(double lat, double lng) {
+        return lat >= minLat && lat <= maxLat && lng >= minLng && lng <= maxLng;
+    }
+
+    public double getMinLat() { return minLat; }
+    public double getMinLng() { return minLng; }
+    public double getMaxLat() { return maxLat; }
+    public double getMaxLng() { return maxLng; }
+}
@@ -0,0 +1,36 @@
+package com.cloud.dto;
+
+import java.util.List;
+
+/**
+ * Bilan d'un export vers Firestore : un document compte comme exporté seulement
+ * une fois l'écriture confirmée par le serveur. failedIds est complet (les entrées
+ * d'outbox à rejouer en dépendent) ; les réponses HTTP n'en montrent que le début.
+ */
+public class FirestoreExportReport {
+    public static final int MAX_REPORTED_IDS = 100;
+
+    private final int total;
+    private final int exported;
+    private final int failed;
+    private final List<String> failedIds;
+
+    public FirestoreExportReport(int total, int exported, int failed, List<String> failedIds) {
+        this.total = total;
+        this.exported = exported;
+        this.failed = failed;
+        this.failedIds = failedIds;
+    }
+
+    public int getTotal() { return total; }
+    public int getExported() { return exported; }
+    public int getFailed() { return failed; }
+    public List<String> getFailedIds() { return failedIds; }
+
+    /**
+     * Les MAX_REPORTED_IDS premiers identifiants en échec ; le nombre total est getFailed()
+     */
+    public List<String> getReportedFailedIds() {
+        return failedIds.size() > MAX_REPORTED_IDS ? List.copyOf(failedIds.subList(0, MAX_REPORTED_IDS)) : failedIds;
+    }
+}
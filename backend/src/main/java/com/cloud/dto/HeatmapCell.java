@@ -0,0 +1,34 @@
+package com.cloud.dto;
+
+/**
+ * Cellule geohash de la carte de chaleur : densité et gravité des signalements qu'elle contient.
+ * latitude/longitude sont le centre de la cellule.
+ */
+public class HeatmapCell {
+    private final String geohash;
+    private final double latitude;
+    private final double longitude;
+    private final int count;
+    private final double totalSurfaceM2;
+    private final double totalBudget;
+    private final Double niveauMoyen;
+
+    public HeatmapCell(String geohash, double latitude, double longitude, int count,
+                       double totalSurfaceM2, double totalBudget, Double niveauMoyen) {
+        this.geohash = geohash;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.totalSurfaceM2 = totalSurfaceM2;
+        this.totalBudget = totalBudget;
+        this.niveauMoyen = niveauMoyen;
+    }
+
+    public String getGeohash() { return geohash; }
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public int getCount() { return count; }
+    public double getTotalSurfaceM2() { return totalSurfaceM2; }
+    public double getTotalBudget() { return totalBudget; }
+    public Double getNiveauMoyen() { return niveauMoyen; }
+}
@@ -0,0 +1,27 @@
+package com.cloud.dto;
+
+import java.sql.Timestamp;
+
+/**
+ * Projection immuable d'une photo pour la liste mise en cache : partageable entre
+ * threads, contrairement à l'entité PhotoSignalement. Mêmes champs JSON que l'entité.
+ */
+public class PhotoView {
+    private final Long idPhoto;
+    private final String idSignalement;
+    private final String urlPhoto;
+    // Timestamp est modifiable : on garde la valeur et on renvoie une copie
+    private final Long dateAjout;
+
+    public PhotoView(Long idPhoto, String idSignalement, String urlPhoto, Timestamp dateAjout) {
+        this.idPhoto = idPhoto;
+        this.idSignalement = idSignalement;
+        this.urlPhoto = urlPhoto;
+        this.dateAjout = dateAjout != null ? dateAjout.getTime() : null;
+    }
+
+    public Long getIdPhoto() { return idPhoto; }
+    public String getIdSignalement() { return idSignalement; }
+    public String getUrlPhoto() { return urlPhoto; }
+    public Timestamp getDateAjout() { return dateAjout != null ? new Timestamp(dateAjout) : null; }
+}
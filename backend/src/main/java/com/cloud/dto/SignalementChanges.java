@@ -0,0 +1,26 @@
+package com.cloud.dto;
+
+import java.util.List;
+
+/**
+ * Réponse de GET /api/signalements/changes : ce qui a changé depuis un jeton.
+ * Le client applique upserts et deleted puis renvoie nextToken au prochain appel.
+ */
+public class SignalementChanges {
+    private final List<SignalementView> upserts;
+    private final List<String> deleted;
+    private final String nextToken;
+    private final boolean hasMore;
+
+    public SignalementChanges(List<SignalementView> upserts, List<String> deleted, String nextToken, boolean hasMore) {
+        this.upserts = upserts;
+        this.deleted = deleted;
+        this.nextToken = nextToken;
+        this.hasMore = hasMore;
+    }
+
+    public List<SignalementView> getUpserts() { return upserts; }
+    public List<String> getDeleted() { return deleted; }
+    public String getNextToken() { return nextToken; }
+    public boolean isHasMore() { return hasMore; }
+}
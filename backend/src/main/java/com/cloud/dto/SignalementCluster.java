@@ -0,0 +1,36 @@
+package com.cloud.dto;
+
+import java.util.Map;
+
+/**
+ * Groupe de signalements proches à un niveau de zoom donné.
+ * latitude/longitude sont le barycentre des points du groupe.
+ */
+public class SignalementCluster {
+    private final double latitude;
+    private final double longitude;
+    private final int count;
+    private final double totalSurfaceM2;
+    private final double totalBudget;
+    private final String statutDominant;
+    private final Map<String, Integer> statuts;
+
+    public SignalementCluster(double latitude, double longitude, int count, double totalSurfaceM2,
+                              double totalBudget, String statutDominant, Map<String, Integer> statuts) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.count = count;
+        this.totalSurfaceM2 = totalSurfaceM2;
+        this.totalBudget = totalBudget;
+        this.statutDominant = statutDominant;
+        this.statuts = statuts;
+    }
+
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public int getCount() { return count; }
+    public double getTotalSurfaceM2() { return totalSurfaceM2; }
+    public double getTotalBudget() { return totalBudget; }
+    public String getStatutDominant() { return statutDominant; }
+    public Map<String, Integer> getStatuts() { return statuts; }
+}
@@ -0,0 +1,42 @@
+package com.cloud.dto;
+
+import com.cloud.model.Signalement;
+import com.cloud.model.User;
+
+/**
+ * Vue détaillée d'un signalement : les champs de la vue liste plus le résumé
+ * de l'auteur (jamais l'entité User complète, qui contient le mot de passe).
+ */
+public class SignalementDetail extends SignalementView {
+    private final UserSummary utilisateur;
+
+    private SignalementDetail(Signalement s, UserSummary utilisateur) {
+        super(s.getIdSignalement(), s.getTitre(), s.getDescription(), s.getLatitude(), s.getLongitude(),
+                s.getDateSignalement(), s.getStatut(), s.getSurfaceM2(), s.getBudget(), s.getEntreprise(),
+                s.getNiveau(), s.getDateNouveau(), s.getDateEnCours(), s.getDateTermine(),
+                s.getUpdatedAt(), s.getRowVersion(), utilisateur != null ? utilisateur.getId() : null,
+                utilisateur != null ? utilisateur.getEmail() : null);
+        this.utilisateur = utilisateur;
+    }
+
+    /**
+     * L'utilisateur doit déjà être chargé (entity graph)
+     */
+    public static SignalementDetail from(Signalement s) {
+        User u = s.getUtilisateur();
+        return new SignalementDetail(s, u != null ? new UserSummary(u.getId(), u.getEmail(), u.getRole()) : null);
+    }
+
+    public UserSummary getUtilisateur() { return utilisateur; }
+
+    public static class UserSummary extends UserRef {
+        private final String role;
+
+        public UserSummary(Long id, String email, String role) {
+            super(id, email);
+            this.role = role;
+        }
+
+        public String getRole() { return role; }
+    }
+}
@@ -0,0 +1,67 @@
+package com.cloud.dto;
+
+import com.cloud.model.Signalement;
+
+import java.sql.Timestamp;
+
+/**
+ * Vue compacte et immuable d'un signalement pour l'affichage sur la carte.
+ * C'est ce que gardent en mémoire les index géographiques.
+ */
+public class SignalementMarker {
+    private final String idSignalement;
+    private final String titre;
+    private final double latitude;
+    private final double longitude;
+    private final String statut;
+    private final Integer niveau;
+    private final int avancement;
+    private final Double surfaceM2;
+    private final Double budget;
+    private final String entreprise;
+    private final Timestamp dateSignalement;
+
+    public SignalementMarker(String idSignalement, String titre, double latitude, double longitude,
+                             String statut, Integer niveau, int avancement, Double surfaceM2,
+                             Double budget, String entreprise, Timestamp dateSignalement) {
+        this.idSignalement = idSignalement;
+        this.titre = titre;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.statut = statut;
+        this.niveau = niveau;
+        this.avancement = avancement;
+        this.surfaceM2 = surfaceM2;
+        this.budget = budget;
+        this.entreprise = entreprise;
+        this.dateSignalement = dateSignalement;
+    }
+
+    /**
+     * Utilisé par les requêtes JPQL "select new" : l'avancement est déduit du statut
+     */
+    public SignalementMarker(String idSignalement, String titre, double latitude, double longitude,
+                             String statut, Integer niveau, Double surfaceM2, Double budget,
+                             String entreprise, Timestamp dateSignalement) {
+        this(idSignalement, titre, latitude, longitude, statut, niveau, Signalement.avancementOf(statut),
+                surfaceM2, budget, entreprise, dateSignalement);
+    }
+
+    public static SignalementMarker from(Signalement s) {
+        return new SignalementMarker(s.getIdSignalement(), s.getTitre(), s.getLatitude(), s.getLongitude(),
+                s.getStatut(), s.getNiveau(), s.getAvancement(), s.getSurfaceM2(), s.getBudget(),
+                s.getEntreprise(), s.getDateSignalement());
+    }
+
+    public String getIdSignalement() { return idSignalement; }
+    public String getTitre() { return titre; }
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public String getStatut() { return statut; }
+    public Integer getNiveau() { return niveau; }
+    public int getAvancement() { return avancement; }
+    public Double getSurfaceM2() { return surfaceM2; }
+    public Double getBudget() { return budget; }
+    public String getEntreprise() { return entreprise; }
+    public Timestamp getDateSignalement() { return dateSignalement; }
+}
@@ -0,0 +1,24 @@
+package com.cloud.dto;
+
+import java.util.List;
+
+/**
+ * Une page de résultats paginés par curseur.
+ * nextCursor est opaque pour le client : il suffit de le renvoyer tel quel
+ * dans le paramètre "cursor" pour obtenir la page suivante (null = dernière page).
+ */
+public class SignalementPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+    private final boolean hasMore;
+
+    public SignalementPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public boolean isHasMore() { return hasMore; }
+}
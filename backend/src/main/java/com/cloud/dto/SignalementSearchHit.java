@@ -0,0 +1,17 @@
+package com.cloud.dto;
+
+/**
+ * Résultat de recherche : le signalement et son score de pertinence (BM25)
+ */
+public class SignalementSearchHit {
+    private final double score;
+    private final SignalementView signalement;
+
+    public SignalementSearchHit(double score, SignalementView signalement) {
+        this.score = score;
+        this.signalement = signalement;
+    }
+
+    public double getScore() { return score; }
+    public SignalementView getSignalement() { return signalement; }
+}
@@ -0,0 +1,29 @@
+package com.cloud.dto;
+
+import java.sql.Timestamp;
+
+/**
+ * Un changement de statut d'un signalement, tel qu'enregistré dans l'historique (jamais modifié)
+ */
+public class SignalementStatutEvent {
+    private final Long idEvent;
+    private final String idSignalement;
+    private final String ancienStatut;
+    private final String nouveauStatut;
+    private final Timestamp dateEvent;
+
+    public SignalementStatutEvent(Long idEvent, String idSignalement, String ancienStatut,
+                                  String nouveauStatut, Timestamp dateEvent) {
+        this.idEvent = idEvent;
+        this.idSignalement = idSignalement;
+        this.ancienStatut = ancienStatut;
+        this.nouveauStatut = nouveauStatut;
+        this.dateEvent = dateEvent;
+    }
+
+    public Long getIdEvent() { return idEvent; }
+    public String getIdSignalement() { return idSignalement; }
+    public String getAncienStatut() { return ancienStatut; }
+    public String getNouveauStatut() { return nouveauStatut; }
+    public Timestamp getDateEvent() { return dateEvent; }
+}
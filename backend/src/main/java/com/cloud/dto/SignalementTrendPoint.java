@@ -0,0 +1,29 @@
+package com.cloud.dto;
+
+import java.time.LocalDate;
+
+/**
+ * Une période (jour, semaine ou mois) de la courbe de tendance des signalements
+ */
+public class SignalementTrendPoint {
+    private final LocalDate periode;
+    private final long nouveaux;
+    private final long termines;
+    private final double budgetEngage;
+    // Signalements ouverts (signalés mais pas encore terminés) en fin de période
+    private final long backlog;
+
+    public SignalementTrendPoint(LocalDate periode, long nouveaux, long termines, double budgetEngage, long backlog) {
+        this.periode = periode;
+        this.nouveaux = nouveaux;
+        this.termines = termines;
+        this.budgetEngage = budgetEngage;
+        this.backlog = backlog;
+    }
+
+    public LocalDate getPeriode() { return periode; }
+    public long getNouveaux() { return nouveaux; }
+    public long getTermines() { return termines; }
+    public double getBudgetEngage() { return budgetEngage; }
+    public long getBacklog() { return backlog; }
+}
@@ -0,0 +1,98 @@
+package com.cloud.dto;
+
+import com.cloud.model.Signalement;
+import com.cloud.model.User;
+
+import java.sql.Timestamp;
+
+/**
+ * Projection d'un signalement pour les listes (carte, tableau récapitulatif).
+ * De l'utilisateur, seuls l'id et l'email sont lus, dans la même requête ; ils sont
+ * exposés sous utilisateur {id, email}, comme avec l'entité.
+ */
+public class SignalementView {
+    private final String idSignalement;
+    private final String titre;
+    private final String description;
+    private final double latitude;
+    private final double longitude;
+    private final Timestamp dateSignalement;
+    private final String statut;
+    private final Double surfaceM2;
+    private final Double budget;
+    private final String entreprise;
+    private final Integer niveau;
+    private final Timestamp dateNouveau;
+    private final Timestamp dateEnCours;
+    private final Timestamp dateTermine;
+    private final Timestamp updatedAt;
+    private final Long rowVersion;
+    private final UserRef utilisateur;
+
+    public SignalementView(String idSignalement, String titre, String description, double latitude,
+                           double longitude, Timestamp dateSignalement, String statut, Double surfaceM2,
+                           Double budget, String entreprise, Integer niveau, Timestamp dateNouveau,
+                           Timestamp dateEnCours, Timestamp dateTermine, Timestamp updatedAt, Long rowVersion,
+                           Long idUser, String emailUser) {
+        this.idSignalement = idSignalement;
+        this.titre = titre;
+        this.description = description;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.dateSignalement = dateSignalement;
+        this.statut = statut;
+        this.surfaceM2 = surfaceM2;
+        this.budget = budget;
+        this.entreprise = entreprise;
+        this.niveau = niveau;
+        this.dateNouveau = dateNouveau;
+        this.dateEnCours = dateEnCours;
+        this.dateTermine = dateTermine;
+        this.updatedAt = updatedAt;
+        this.rowVersion = rowVersion;
+        this.utilisateur = idUser != null ? new UserRef(idUser, emailUser) : null;
+    }
+
+    /**
+     * L'utilisateur doit déjà être chargé (fetch join / entity graph)
+     */
+    public static SignalementView from(Signalement s) {
+        User u = s.getUtilisateur();
+        return new SignalementView(s.getIdSignalement(), s.getTitre(), s.getDescription(), s.getLatitude(),
+                s.getLongitude(), s.getDateSignalement(), s.getStatut(), s.getSurfaceM2(), s.getBudget(),
+                s.getEntreprise(), s.getNiveau(), s.getDateNouveau(), s.getDateEnCours(), s.getDateTermine(),
+                s.getUpdatedAt(), s.getRowVersion(), u != null ? u.getId() : null, u != null ? u.getEmail() : null);
+    }
+
+    public String getIdSignalement() { return idSignalement; }
+    public String getTitre() { return titre; }
+    public String getDescription() { return description; }
+    public double getLatitude() { return latitude; }
+    public double getLongitude() { return longitude; }
+    public Timestamp getDateSignalement() { return dateSignalement; }
+    public String getStatut() { return statut; }
+    public Double getSurfaceM2() { return surfaceM2; }
+    public Double getBudget() { return budget; }
+    public String getEntreprise() { return entreprise; }
+    public Integer getNiveau() { return niveau; }
+    public Timestamp getDateNouveau() { return dateNouveau; }
+    public Timestamp getDateEnCours() { return dateEnCours; }
+    public Timestamp getDateTermine() { return dateTermine; }
+    public Timestamp getUpdatedAt() { return updatedAt; }
+    public Long getRowVersion() { return rowVersion; }
+    public UserRef getUtilisateur() { return utilisateur; }
+    public int getAvancement() { return Signalement.avancementOf(statut); }
+
+    public static class UserRef {
+        private final Long id;
+        private final String email;
+
+        public UserRef(Long id, String email) {
+            this.id = id;
+            this.email = email;
+        }
+
+        public Long getId() { return id; }
+        public String getEmail() { return email; }
+    }
+}
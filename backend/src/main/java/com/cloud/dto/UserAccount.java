@@ -0,0 +1,24 @@
+package com.cloud.dto;
+
+/**
+ * Projection immuable d'un utilisateur (sans mot de passe) pour les lectures fréquentes
+ * mises en cache : partageable entre threads, contrairement à l'entité User.
+ */
+public class UserAccount {
+    private final Long id;
+    private final String email;
+    private final String role;
+    private final boolean locked;
+
+    public UserAccount(Long id, String email, String role, boolean locked) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+        this.locked = locked;
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return email; }
+    public String getRole() { return role; }
+    public boolean isLocked() { return locked; }
+}
@@ -0,0 +1,34 @@
+package com.cloud.event;
+
+import com.cloud.model.Signalement;
+
+/**
+ * Publié par SignalementService après chaque écriture d'un signalement.
+ * Les index en mémoire (spatial, clusters, ...) l'écoutent pour se tenir à jour
+ * sans relire toute la table.
+ */
+public class SignalementChangedEvent {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    private final Type type;
+    // Pour DELETED : dernier état connu avant la suppression
+    private final Signalement signalement;
+    // Version de ligne de l'écriture (celle de la tombstone pour DELETED), 0 si inconnue
+    private final long version;
+
+    public SignalementChangedEvent(Type type, Signalement signalement) {
+        this(type, signalement, signalement.getRowVersion() != null ? signalement.getRowVersion() : 0L);
+    }
+
+    public SignalementChangedEvent(Type type, Signalement signalement, long version) {
+        this.type = type;
+        this.signalement = signalement;
+        this.version = version;
+    }
+
+    public Type getType() { return type; }
+    public Signalement getSignalement() { return signalement; }
+    public long getVersion() { return version; }
+    public boolean isDeleted() { return type == Type.DELETED; }
+}
@@ -0,0 +1,54 @@
+package com.cloud.model;
+
+import jakarta.persistence.*;
+import java.sql.Timestamp;
+
+/**
+ * Changement d'un signalement à reporter dans Firestore, écrit dans la même transaction
+ * que la modification SQL. champs : noms des champs du document modifiés, séparés par
+ * des virgules ("*" pour tout le document).
+ */
+@Entity
+@Table(name = "firestore_outbox")
+public class FirestoreOutboxEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_outbox")
+    private Long idOutbox;
+
+    @Column(name = "id_signalement", nullable = false)
+    private String idSignalement;
+
+    @Column(name = "champs", length = 1000)
+    private String champs;
+
+    @Column(name = "supprime", nullable = false)
+    private boolean supprime;
+
+    @Column(name = "created_at", nullable = false)
+    private Timestamp createdAt;
+
+    public FirestoreOutboxEntry() {
+    }
+
+    public FirestoreOutboxEntry(Long idOutbox, String idSignalement, String champs, boolean supprime,
+                                Timestamp createdAt) {
+        this.idOutbox = idOutbox;
+        this.idSignalement = idSignalement;
+        this.champs = champs;
+        this.supprime = supprime;
+        this.createdAt = createdAt;
+    }
+
+    public Long getIdOutbox() { return idOutbox; }
+    public void setIdOutbox(Long idOutbox) { this.idOutbox = idOutbox; }
+    public String getIdSignalement() { return idSignalement; }
+    public void setIdSignalement(String idSignalement) { this.idSignalement = idSignalement; }
+    public String getChamps() { return champs; }
+    public void setChamps(String champs) { this.champs = champs; }
+    public boolean isSupprime() { return supprime; }
+    public void setSupprime(boolean supprime) { this.supprime = supprime; }
+    public Timestamp getCreatedAt() { return createdAt; }
+    public void setCreatedAt(Timestamp createdAt) { this.createdAt = createdAt; }
+}
@@ -4,7 +4,14 @@ import jakarta.persistence.*;
 import java.sql.Timestamp;
 
 @Entity
-@Table(name = "signalement")
+@Table(name = "signalement", indexes = {
+    // Index de la pagination par curseur (NULLS LAST) : SignalementBatchRepository.createKeysetIndexes
+    // Synchronisation différentielle (GET /api/signalements/changes?since=)
+    @Index(name = "idx_signalement_row_version", columnList = "row_version"),
+    // Recalcul des agrégats journaliers (jour de démarrage / de fin des travaux)
+    @Index(name = "idx_signalement_date_en_cours", columnList = "date_en_cours"),
+    @Index(name = "idx_signalement_date_termine", columnList = "date_termine")
+})
 public class Signalement {
     @Id
     @Column(name = "id_signalement")
@@ -14,19 +21,32 @@ public class Signalement {
     private String description;
     private double latitude;
     private double longitude;
+    @Column(name = "date_signalement")
     private Timestamp dateSignalement;
+    @Column(name = "statut")
     private String statut;
     private Double surfaceM2;
     private Double budget;
+    @Column(name = "entreprise")
     private String entreprise;
+    @Column(name = "niveau")
     private Integer niveau; // Niveau de réparation (1-10)
 
     // Dates pour chaque étape d'avancement
     private Timestamp dateNouveau;
+    @Column(name = "date_en_cours")
     private Timestamp dateEnCours;
+    @Column(name = "date_termine")
     private Timestamp dateTermine;
 
-    @ManyToOne
+    // Suivi des modifications, maintenus par SignalementService
+    @Column(name = "updated_at")
+    private Timestamp updatedAt;
+    @Column(name = "row_version")
+    private Long rowVersion;
+
+    // LAZY : les listes passent par des projections (SignalementView) qui joignent l'utilisateur
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_user")
     private User utilisateur;
 
@@ -62,9 +82,17 @@ public class Signalement {
     public void setDateEnCours(Timestamp dateEnCours) { this.dateEnCours = dateEnCours; }
     public Timestamp getDateTermine() { return dateTermine; }
     public void setDateTermine(Timestamp dateTermine) { this.dateTermine = dateTermine; }
+    public Timestamp getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Timestamp updatedAt) { this.updatedAt = updatedAt; }
+    public Long getRowVersion() { return rowVersion; }
+    public void setRowVersion(Long rowVersion) { this.rowVersion = rowVersion; }
 
     // Calculer l'avancement en pourcentage basé sur le statut
     public int getAvancement() {
+        return avancementOf(statut);
+    }
+
+    public static int avancementOf(String statut) {
         if (statut == null) return 0;
         switch (statut.toLowerCase()) {
             case "nouveau": return 0;
@@ -0,0 +1,71 @@
+package com.cloud.model;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.sql.Date;
+import java.util.Objects;
+
+/**
+ * Agrégats d'une journée pour une entreprise (entreprise vide = non renseignée).
+ * Recalculés par SignalementRollupService pour les seuls jours touchés.
+ */
+@Entity
+@Table(name = "signalement_daily_rollup")
+@IdClass(SignalementDailyRollup.Key.class)
+public class SignalementDailyRollup {
+
+    @Id
+    @Column(name = "jour")
+    private Date jour;
+
+    @Id
+    @Column(name = "entreprise")
+    private String entreprise;
+
+    // Signalements dont la date de signalement tombe ce jour-là
+    @Column(name = "nb_nouveaux", nullable = false)
+    private long nbNouveaux;
+
+    // Signalements passés à "terminé" ce jour-là
+    @Column(name = "nb_termines", nullable = false)
+    private long nbTermines;
+
+    // Budget des signalements dont les travaux ont démarré ce jour-là
+    @Column(name = "budget_engage", nullable = false)
+    private double budgetEngage;
+
+    public Date getJour() { return jour; }
+    public void setJour(Date jour) { this.jour = jour; }
+    public String getEntreprise() { return entreprise; }
+    public void setEntreprise(String entreprise) { this.entreprise = entreprise; }
+    public long getNbNouveaux() { return nbNouveaux; }
+    public void setNbNouveaux(long nbNouveaux) { this.nbNouveaux = nbNouveaux; }
+    public long getNbTermines() { return nbTermines; }
+    public void setNbTermines(long nbTermines) { this.nbTermines = nbTermines; }
+    public double getBudgetEngage() { return budgetEngage; }
+    public void setBudgetEngage(double budgetEngage) { this.budgetEngage = budgetEngage; }
+
+    public static class Key implements Serializable {
+        private Date jour;
+        private String entreprise;
+
+        public Key() {
+        }
+
+        public Key(Date jour, String entreprise) {
+            this.jour = jour;
+            this.entreprise = entreprise;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key other && Objects.equals(jour, other.jour)
+                    && Objects.equals(entreprise, other.entreprise);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(jour, entreprise);
+        }
+    }
+}
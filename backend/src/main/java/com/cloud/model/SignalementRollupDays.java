@@ -0,0 +1,35 @@
+package com.cloud.model;
+
+import jakarta.persistence.*;
+import java.sql.Date;
+
+/**
+ * Jours auxquels un signalement a été compté lors du dernier calcul des agrégats.
+ * Quand il change ou est supprimé, ces jours-là sont recalculés eux aussi.
+ */
+@Entity
+@Table(name = "signalement_rollup_days")
+public class SignalementRollupDays {
+
+    @Id
+    @Column(name = "id_signalement")
+    private String idSignalement;
+
+    @Column(name = "jour_signalement")
+    private Date jourSignalement;
+
+    @Column(name = "jour_en_cours")
+    private Date jourEnCours;
+
+    @Column(name = "jour_termine")
+    private Date jourTermine;
+
+    public String getIdSignalement() { return idSignalement; }
+    public void setIdSignalement(String idSignalement) { this.idSignalement = idSignalement; }
+    public Date getJourSignalement() { return jourSignalement; }
+    public void setJourSignalement(Date jourSignalement) { this.jourSignalement = jourSignalement; }
+    public Date getJourEnCours() { return jourEnCours; }
+    public void setJourEnCours(Date jourEnCours) { this.jourEnCours = jourEnCours; }
+    public Date getJourTermine() { return jourTermine; }
+    public void setJourTermine(Date jourTermine) { this.jourTermine = jourTermine; }
+}
@@ -0,0 +1,41 @@
+package com.cloud.model;
+
+import jakarta.persistence.*;
+import java.sql.Timestamp;
+
+/**
+ * Trace d'un signalement supprimé, pour que les clients mobiles
+ * apprennent la suppression lors de leur synchronisation différentielle.
+ */
+@Entity
+@Table(name = "signalement_tombstone", indexes = {
+    @Index(name = "idx_tombstone_row_version", columnList = "row_version")
+})
+public class SignalementTombstone {
+
+    @Id
+    @Column(name = "id_signalement")
+    private String idSignalement;
+
+    @Column(name = "row_version", nullable = false)
+    private Long rowVersion;
+
+    @Column(name = "deleted_at", nullable = false)
+    private Timestamp deletedAt;
+
+    public SignalementTombstone() {
+    }
+
+    public SignalementTombstone(String idSignalement, Long rowVersion, Timestamp deletedAt) {
+        this.idSignalement = idSignalement;
+        this.rowVersion = rowVersion;
+        this.deletedAt = deletedAt;
+    }
+
+    public String getIdSignalement() { return idSignalement; }
+    public void setIdSignalement(String idSignalement) { this.idSignalement = idSignalement; }
+    public Long getRowVersion() { return rowVersion; }
+    public void setRowVersion(Long rowVersion) { this.rowVersion = rowVersion; }
+    public Timestamp getDeletedAt() { return deletedAt; }
+    public void setDeletedAt(Timestamp deletedAt) { this.deletedAt = deletedAt; }
+}
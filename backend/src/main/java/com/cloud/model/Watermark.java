@@ -0,0 +1,39 @@
+package com.cloud.model;
+
+import jakarta.persistence.*;
+import java.sql.Timestamp;
+
+/**
+ * Point d'avancement d'un traitement incrémental (ex. dernière version de ligne
+ * déjà intégrée aux agrégats), pour reprendre là où il s'était arrêté.
+ */
+@Entity
+@Table(name = "watermark")
+public class Watermark {
+
+    @Id
+    @Column(name = "nom")
+    private String nom;
+
+    @Column(name = "valeur", nullable = false)
+    private long valeur;
+
+    @Column(name = "updated_at")
+    private Timestamp updatedAt;
+
+    public Watermark() {
+    }
+
+    public Watermark(String nom, long valeur) {
+        this.nom = nom;
+        this.valeur = valeur;
+        this.updatedAt = new Timestamp(System.currentTimeMillis());
+    }
+
+    public String getNom() { return nom; }
+    public void setNom(String nom) { this.nom = nom; }
+    public long getValeur() { return valeur; }
+    public void setValeur(long valeur) { this.valeur = valeur; }
+    public Timestamp getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(Timestamp updatedAt) { this.updatedAt = updatedAt; }
+}
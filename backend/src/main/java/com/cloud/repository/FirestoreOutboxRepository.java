@@ -0,0 +1,60 @@
+package com.cloud.repository;
+
+import com.cloud.model.FirestoreOutboxEntry;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outbox des changements à exporter vers Firestore (table firestore_outbox, déclarée comme
+ * entité JPA). En JDBC pour insérer un lot en un seul batch malgré la clé IDENTITY.
+ */
+@Repository
+public class FirestoreOutboxRepository {
+
+    private static final RowMapper<FirestoreOutboxEntry> ROW_MAPPER = (rs, i) -> new FirestoreOutboxEntry(
+            rs.getLong("id_outbox"), rs.getString("id_signalement"), rs.getString("champs"),
+            rs.getBoolean("supprime"), rs.getTimestamp("created_at"));
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public FirestoreOutboxRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void appendAll(List<FirestoreOutboxEntry> entries) {
+        SqlParameterSource[] batch = new SqlParameterSource[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            FirestoreOutboxEntry e = entries.get(i);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("id", e.getIdSignalement(), Types.VARCHAR)
+                    .addValue("champs", e.getChamps(), Types.VARCHAR)
+                    .addValue("supprime", e.isSupprime())
+                    .addValue("date", e.getCreatedAt(), Types.TIMESTAMP);
+        }
+        jdbc.batchUpdate("INSERT INTO firestore_outbox (id_signalement, champs, supprime, created_at) "
+                + "VALUES (:id, :champs, :supprime, :date)", batch);
+    }
+
+    /**
+     * Plus anciennes entrées restantes, dans l'ordre d'écriture (lecture de la clé primaire ;
+     * les entrées envoyées sont supprimées, la table ne contient que ce qui reste à faire)
+     */
+    public List<FirestoreOutboxEntry> findFirst(int limit) {
+        return jdbc.query("SELECT * FROM firestore_outbox ORDER BY id_outbox LIMIT :limit",
+                Map.of("limit", limit), ROW_MAPPER);
+    }
+
+    public void deleteAll(Collection<Long> ids) {
+        if (!ids.isEmpty()) {
+            jdbc.update("DELETE FROM firestore_outbox WHERE id_outbox IN (:ids)", Map.of("ids", ids));
+        }
+    }
+}
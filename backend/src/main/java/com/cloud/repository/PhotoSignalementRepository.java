@@ -1,7 +1,10 @@
 package com.cloud.repository;
 
+import com.cloud.dto.PhotoView;
 import com.cloud.model.PhotoSignalement;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -13,6 +16,13 @@ public interface PhotoSignalementRepository extends JpaRepository<PhotoSignaleme
      * Récupère toutes les photos d'un signalement donné
      */
     List<PhotoSignalement> findByIdSignalement(String idSignalement);
+
+    /**
+     * Même liste en projection immuable (mise en cache)
+     */
+    @Query("select new com.cloud.dto.PhotoView(p.idPhoto, p.idSignalement, p.urlPhoto, p.dateAjout) "
+            + "from PhotoSignalement p where p.idSignalement = :idSignalement")
+    List<PhotoView> findViewsByIdSignalement(@Param("idSignalement") String idSignalement);
     
     /**
      * Supprime toutes les photos d'un signalement
@@ -0,0 +1,154 @@
+package com.cloud.repository;
+
+import com.cloud.model.Signalement;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Écritures en masse des signalements en JDBC : un INSERT ... ON CONFLICT DO UPDATE
+ * par ligne, envoyés en un seul batch, au lieu d'un findById + save par signalement.
+ * Les règles de SignalementService.updateSignalement sont reproduites en SQL :
+ * champ null (ou latitude/longitude à 0) = inchangé, et dates d'avancement
+ * renseignées uniquement lorsque le statut change.
+ */
+@Repository
+public class SignalementBatchRepository {
+
+    private static final String STATUT_INCHANGE =
+            "(:statut IS NULL OR :statut = s.statut)";
+    private static final String STATUT_EN_COURS_OU_TERMINE =
+            "lower(:statut) IN ('en cours', 'termine', 'terminé')";
+    private static final String STATUT_TERMINE =
+            "lower(:statut) IN ('termine', 'terminé')";
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO signalement AS s (id_signalement, titre, description, latitude, longitude, "
+            + "date_signalement, statut, surface_m2, budget, entreprise, niveau, id_user, "
+            + "date_nouveau, date_en_cours, date_termine, updated_at, row_version) "
+            + "VALUES (:id, :titre, :description, coalesce(:latitude, 0), coalesce(:longitude, 0), "
+            + ":dateSignalement, :statut, :surfaceM2, :budget, :entreprise, :niveau, :idUser, "
+            + ":insertDateNouveau, :insertDateEnCours, :insertDateTermine, :now, :rowVersion) "
+            + "ON CONFLICT (id_signalement) DO UPDATE SET "
+            + "titre = coalesce(:titre, s.titre), "
+            + "description = coalesce(:description, s.description), "
+            + "latitude = coalesce(:latitude, s.latitude), "
+            + "longitude = coalesce(:longitude, s.longitude), "
+            + "date_signalement = coalesce(:dateSignalement, s.date_signalement), "
+            + "statut = coalesce(:statut, s.statut), "
+            + "surface_m2 = coalesce(:surfaceM2, s.surface_m2), "
+            + "budget = coalesce(:budget, s.budget), "
+            + "entreprise = coalesce(:entreprise, s.entreprise), "
+            + "niveau = coalesce(:niveau, s.niveau), "
+            + "id_user = coalesce(:idUser, s.id_user), "
+            + "date_nouveau = CASE WHEN " + STATUT_INCHANGE + " THEN s.date_nouveau "
+            + "  WHEN lower(:statut) = 'nouveau' THEN coalesce(s.date_nouveau, :now) "
+            + "  WHEN " + STATUT_EN_COURS_OU_TERMINE
+            + "    THEN coalesce(s.date_nouveau, :dateSignalement, s.date_signalement, :now) "
+            + "  ELSE s.date_nouveau END, "
+            + "date_en_cours = CASE WHEN " + STATUT_INCHANGE + " THEN s.date_en_cours "
+            + "  WHEN " + STATUT_EN_COURS_OU_TERMINE + " THEN coalesce(s.date_en_cours, :now) "
+            + "  ELSE s.date_en_cours END, "
+            + "date_termine = CASE WHEN " + STATUT_INCHANGE + " THEN s.date_termine "
+            + "  WHEN " + STATUT_TERMINE + " THEN coalesce(s.date_termine, :now) "
+            + "  ELSE s.date_termine END, "
+            + "updated_at = :now, "
+            + "row_version = :rowVersion";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public SignalementBatchRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Index de la pagination par curseur, dans l'ordre exact de KEYSET_SORT
+     * (date_signalement DESC NULLS LAST, id_signalement DESC) : @Index ne sait pas exprimer
+     * NULLS LAST, et un index DESC sans précision est NULLS FIRST pour PostgreSQL, donc
+     * inutilisable pour ce tri. Les anciens index (sans NULLS LAST ni id) sont supprimés.
+     */
+    public void createKeysetIndexes() {
+        var ops = jdbc.getJdbcOperations();
+        for (String old : List.of("idx_signalement_date_id", "idx_signalement_statut_date",
+                "idx_signalement_entreprise_date", "idx_signalement_niveau_date")) {
+            ops.execute("DROP INDEX IF EXISTS " + old);
+        }
+        ops.execute("CREATE INDEX IF NOT EXISTS idx_signalement_keyset ON signalement "
+                + "(date_signalement DESC NULLS LAST, id_signalement DESC)");
+        for (String filter : List.of("statut", "entreprise", "niveau")) {
+            ops.execute("CREATE INDEX IF NOT EXISTS idx_signalement_" + filter + "_keyset ON signalement "
+                    + "(" + filter + ", date_signalement DESC NULLS LAST, id_signalement DESC)");
+        }
+    }
+
+    /**
+     * Statut actuel des signalements existants parmi ids (les absents seront créés)
+     */
+    public Map<String, String> findStatuts(Collection<String> ids) {
+        Map<String, String> statuts = new HashMap<>();
+        if (ids.isEmpty()) {
+            return statuts;
+        }
+        jdbc.query("SELECT id_signalement, statut FROM signalement WHERE id_signalement IN (:ids)",
+                Map.of("ids", ids),
+                rs -> { statuts.put(rs.getString(1), rs.getString(2)); });
+        return statuts;
+    }
+
+    /**
+     * @param versions version de ligne attribuée à chaque signalement, dans le même ordre
+     */
+    public void upsertAll(List<Signalement> updates, List<Long> versions, Timestamp now) {
+        SqlParameterSource[] batch = new SqlParameterSource[updates.size()];
+        for (int i = 0; i < updates.size(); i++) {
+            batch[i] = parameters(updates.get(i), versions.get(i), now);
+        }
+        jdbc.batchUpdate(UPSERT_SQL, batch);
+    }
+
+    private static SqlParameterSource parameters(Signalement u, long rowVersion, Timestamp now) {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("id", u.getIdSignalement(), Types.VARCHAR)
+                .addValue("titre", u.getTitre(), Types.VARCHAR)
+                .addValue("description", u.getDescription(), Types.VARCHAR)
+                .addValue("latitude", u.getLatitude() != 0d ? u.getLatitude() : null, Types.DOUBLE)
+                .addValue("longitude", u.getLongitude() != 0d ? u.getLongitude() : null, Types.DOUBLE)
+                .addValue("dateSignalement", u.getDateSignalement(), Types.TIMESTAMP)
+                .addValue("statut", u.getStatut(), Types.VARCHAR)
+                .addValue("surfaceM2", u.getSurfaceM2(), Types.DOUBLE)
+                .addValue("budget", u.getBudget(), Types.DOUBLE)
+                .addValue("entreprise", u.getEntreprise(), Types.VARCHAR)
+                .addValue("niveau", u.getNiveau(), Types.INTEGER)
+                .addValue("idUser", u.getUtilisateur() != null ? u.getUtilisateur().getId() : null, Types.BIGINT)
+                .addValue("now", now, Types.TIMESTAMP)
+                .addValue("rowVersion", rowVersion, Types.BIGINT);
+
+        // Création : mêmes dates d'avancement que updateSignalement sur un signalement neuf
+        Timestamp dateNouveau = null;
+        Timestamp dateEnCours = null;
+        Timestamp dateTermine = null;
+        String statut = u.getStatut() != null ? u.getStatut().toLowerCase() : null;
+        Timestamp origine = u.getDateSignalement() != null ? u.getDateSignalement() : now;
+        if ("nouveau".equals(statut)) {
+            dateNouveau = now;
+        } else if ("en cours".equals(statut)) {
+            dateNouveau = origine;
+            dateEnCours = now;
+        } else if ("termine".equals(statut) || "terminé".equals(statut)) {
+            dateNouveau = origine;
+            dateEnCours = now;
+            dateTermine = now;
+        }
+        return p.addValue("insertDateNouveau", dateNouveau, Types.TIMESTAMP)
+                .addValue("insertDateEnCours", dateEnCours, Types.TIMESTAMP)
+                .addValue("insertDateTermine", dateTermine, Types.TIMESTAMP);
+    }
+}
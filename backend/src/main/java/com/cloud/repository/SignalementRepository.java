@@ -1,9 +1,101 @@
 package com.cloud.repository;
 
+import com.cloud.dto.SignalementMarker;
+import com.cloud.dto.SignalementView;
 import com.cloud.model.Signalement;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface SignalementRepository extends JpaRepository<Signalement, String> {
+public interface SignalementRepository extends JpaRepository<Signalement, String>, JpaSpecificationExecutor<Signalement> {
+
+    int EXPORT_FETCH_SIZE = 500;
+
+    // Ordre stable et total : la date seule ne suffit pas (doublons possibles)
+    Sort KEYSET_SORT = Sort.by(
+            Sort.Order.desc("dateSignalement").nullsLast(),
+            Sort.Order.desc("idSignalement"));
+
+    /**
+     * Liste complète en une seule requête : l'utilisateur est joint et seuls id/email sont lus
+     */
+    @Query("select new com.cloud.dto.SignalementView(s.idSignalement, s.titre, s.description, s.latitude, "
+            + "s.longitude, s.dateSignalement, s.statut, s.surfaceM2, s.budget, s.entreprise, s.niveau, "
+            + "s.dateNouveau, s.dateEnCours, s.dateTermine, s.updatedAt, s.rowVersion, u.id, u.email) "
+            + "from Signalement s left join s.utilisateur u")
+    List<SignalementView> findAllViews();
+
+    @Query("select new com.cloud.dto.SignalementView(s.idSignalement, s.titre, s.description, s.latitude, "
+            + "s.longitude, s.dateSignalement, s.statut, s.surfaceM2, s.budget, s.entreprise, s.niveau, "
+            + "s.dateNouveau, s.dateEnCours, s.dateTermine, s.updatedAt, s.rowVersion, u.id, u.email) "
+            + "from Signalement s left join s.utilisateur u where s.idSignalement in :ids")
+    List<SignalementView> findViewsByIds(@Param("ids") Collection<String> ids);
+
+    /**
+     * Signalements créés ou modifiés après la version since, dans l'ordre des versions
+     */
+    @Query("select new com.cloud.dto.SignalementView(s.idSignalement, s.titre, s.description, s.latitude, "
+            + "s.longitude, s.dateSignalement, s.statut, s.surfaceM2, s.budget, s.entreprise, s.niveau, "
+            + "s.dateNouveau, s.dateEnCours, s.dateTermine, s.updatedAt, s.rowVersion, u.id, u.email) "
+            + "from Signalement s left join s.utilisateur u "
+            + "where s.rowVersion > :since order by s.rowVersion")
+    List<SignalementView> findViewsChangedSince(@Param("since") long since, Limit limit);
+
+    @Query("select coalesce(max(s.rowVersion), 0) from Signalement s")
+    long findMaxRowVersion();
+
+    /**
+     * Les lignes antérieures au suivi des versions reçoivent la version 0
+     */
+    @Transactional
+    @Modifying
+    @Query("update Signalement s set s.rowVersion = 0 where s.rowVersion is null")
+    int initMissingRowVersions();
+
+    /**
+     * Données minimales pour les index géographiques (aucune jointure)
+     */
+    @Query("select new com.cloud.dto.SignalementMarker(s.idSignalement, s.titre, s.latitude, s.longitude, "
+            + "s.statut, s.niveau, s.surfaceM2, s.budget, s.entreprise, s.dateSignalement) "
+            + "from Signalement s")
+    List<SignalementMarker> findAllMarkers();
+
+    /**
+     * Page de la pagination par curseur, dans l'ordre KEYSET_SORT ; project("utilisateur")
+     * devient un fetch graph : pas de N+1 sur les auteurs
+     */
+    default List<Signalement> findKeysetPage(Specification<Signalement> spec, int limit) {
+        return findBy(spec, q -> q.sortBy(KEYSET_SORT).project("utilisateur").limit(limit).all());
+    }
+
+    @EntityGraph(attributePaths = "utilisateur")
+    Optional<Signalement> findWithUtilisateurByIdSignalement(String idSignalement);
+
+    /**
+     * Parcours en avant seulement de toute la table (curseur JDBC).
+     * Doit être consommé dans une transaction, qui garde le curseur ouvert.
+     */
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("select s from Signalement s left join fetch s.utilisateur order by s.idSignalement")
+    Stream<Signalement> streamAll();
 }
@@ -0,0 +1,120 @@
+package com.cloud.repository;
+
+import com.cloud.dto.SignalementTrendPoint;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Requêtes ensemblistes des agrégats journaliers (tables signalement_daily_rollup et
+ * signalement_rollup_days, déclarées comme entités JPA) : recalculs par plage de jours
+ * et lecture des tendances par jour, semaine ou mois.
+ */
+@Repository
+public class SignalementRollupRepository {
+
+    // Signalements modifiés ou supprimés depuis la version :since
+    private static final String CHANGED_IDS =
+            "SELECT id_signalement FROM signalement WHERE row_version > :since "
+            + "UNION SELECT id_signalement FROM signalement_tombstone WHERE row_version > :since";
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public SignalementRollupRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Jours à recalculer : ceux de l'état actuel des signalements modifiés, et ceux
+     * auxquels ils (ou les signalements supprimés) étaient comptés jusqu'ici
+     */
+    public TreeSet<LocalDate> findTouchedDays(long since) {
+        TreeSet<LocalDate> days = new TreeSet<>();
+        jdbc.query("SELECT d FROM ("
+                        + "SELECT cast(date_signalement AS date) d FROM signalement WHERE row_version > :since "
+                        + "UNION SELECT cast(date_en_cours AS date) FROM signalement WHERE row_version > :since "
+                        + "UNION SELECT cast(date_termine AS date) FROM signalement WHERE row_version > :since "
+                        + "UNION SELECT unnest(array[r.jour_signalement, r.jour_en_cours, r.jour_termine]) "
+                        + "FROM signalement_rollup_days r WHERE r.id_signalement IN (" + CHANGED_IDS + ")"
+                        + ") t WHERE d IS NOT NULL",
+                Map.of("since", since),
+                rs -> { days.add(rs.getDate(1).toLocalDate()); });
+        return days;
+    }
+
+    /**
+     * Recalcule exactement les agrégats des jours from..to (inclus), toutes entreprises
+     */
+    public void recompute(LocalDate from, LocalDate to) {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("from", Date.valueOf(from))
+                .addValue("to", Date.valueOf(to))
+                .addValue("start", Timestamp.valueOf(from.atStartOfDay()))
+                .addValue("end", Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        jdbc.update("DELETE FROM signalement_daily_rollup WHERE jour BETWEEN :from AND :to", p);
+        jdbc.update("INSERT INTO signalement_daily_rollup (jour, entreprise, nb_nouveaux, nb_termines, budget_engage) "
+                + "SELECT jour, entreprise, sum(n), sum(t), sum(b) FROM ("
+                + "SELECT cast(date_signalement AS date) jour, coalesce(entreprise, '') entreprise, 1 n, 0 t, 0.0 b "
+                + "FROM signalement WHERE date_signalement >= :start AND date_signalement < :end "
+                + "UNION ALL SELECT cast(date_termine AS date), coalesce(entreprise, ''), 0, 1, 0.0 "
+                + "FROM signalement WHERE date_termine >= :start AND date_termine < :end "
+                + "UNION ALL SELECT cast(date_en_cours AS date), coalesce(entreprise, ''), 0, 0, coalesce(budget, 0) "
+                + "FROM signalement WHERE date_en_cours >= :start AND date_en_cours < :end"
+                + ") x GROUP BY jour, entreprise", p);
+    }
+
+    /**
+     * Mémorise les jours de rattachement actuels des signalements modifiés depuis :since
+     */
+    public void refreshRollupDays(long since) {
+        Map<String, Object> p = Map.of("since", since);
+        jdbc.update("DELETE FROM signalement_rollup_days WHERE id_signalement IN ("
+                + "SELECT id_signalement FROM signalement_tombstone WHERE row_version > :since)", p);
+        jdbc.update("INSERT INTO signalement_rollup_days (id_signalement, jour_signalement, jour_en_cours, jour_termine) "
+                + "SELECT id_signalement, cast(date_signalement AS date), cast(date_en_cours AS date), "
+                + "cast(date_termine AS date) FROM signalement WHERE row_version > :since "
+                + "ON CONFLICT (id_signalement) DO UPDATE SET jour_signalement = EXCLUDED.jour_signalement, "
+                + "jour_en_cours = EXCLUDED.jour_en_cours, jour_termine = EXCLUDED.jour_termine", p);
+    }
+
+    /**
+     * @param granularity "day", "week" ou "month" (champ de date_trunc)
+     * @param entreprise  null pour toutes
+     */
+    public List<SignalementTrendPoint> findTrends(String granularity, LocalDate from, LocalDate to, String entreprise) {
+        MapSqlParameterSource p = new MapSqlParameterSource()
+                .addValue("granularity", granularity)
+                .addValue("from", Date.valueOf(from))
+                .addValue("to", Date.valueOf(to))
+                .addValue("entreprise", entreprise);
+        String filter = entreprise != null ? " AND entreprise = :entreprise" : "";
+
+        // Backlog au début de la plage : tout ce qui a été signalé et pas terminé avant from
+        Long backlog = jdbc.queryForObject("SELECT coalesce(sum(nb_nouveaux - nb_termines), 0) "
+                + "FROM signalement_daily_rollup WHERE jour < :from" + filter, p, Long.class);
+        long[] running = {backlog != null ? backlog : 0};
+
+        List<SignalementTrendPoint> points = new ArrayList<>();
+        jdbc.query("SELECT cast(date_trunc(cast(:granularity AS text), cast(jour AS timestamp)) AS date) periode, "
+                        + "sum(nb_nouveaux), sum(nb_termines), sum(budget_engage) "
+                        + "FROM signalement_daily_rollup WHERE jour BETWEEN :from AND :to" + filter
+                        + " GROUP BY 1 ORDER BY 1",
+                p,
+                rs -> {
+                    long nouveaux = rs.getLong(2);
+                    long termines = rs.getLong(3);
+                    running[0] += nouveaux - termines;
+                    points.add(new SignalementTrendPoint(rs.getDate(1).toLocalDate(), nouveaux, termines,
+                            rs.getDouble(4), running[0]));
+                });
+        return points;
+    }
+}
@@ -0,0 +1,49 @@
+package com.cloud.repository;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Séquence PostgreSQL des versions de ligne (signalements et tombstones), partagée par
+ * toutes les instances, et verrou consultatif qui ordonne les écritures versionnées.
+ */
+@Repository
+public class SignalementRowVersionRepository {
+
+    public static final String SEQUENCE = "signalement_row_version_seq";
+
+    // Clé du verrou consultatif (pg_advisory_xact_lock) qui sérialise l'attribution des versions
+    private static final long ALLOCATION_LOCK = 0x5349474e414cL;
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public SignalementRowVersionRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    /**
+     * Crée la séquence si besoin et la place au-dessus de floor (versions déjà attribuées)
+     */
+    public void createSequence(long floor) {
+        jdbc.getJdbcOperations().execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE);
+        jdbc.queryForObject("SELECT setval('" + SEQUENCE + "', greatest(:floor, "
+                        + "(SELECT last_value FROM " + SEQUENCE + ")))",
+                Map.of("floor", Math.max(floor, 1)), Long.class);
+    }
+
+    /**
+     * Verrou tenu jusqu'à la fin de la transaction : une transaction qui a obtenu des
+     * versions est validée (ou annulée) avant qu'une autre en obtienne de plus grandes
+     */
+    public void lockAllocation() {
+        jdbc.queryForObject("SELECT pg_advisory_xact_lock(:key)::text", Map.of("key", ALLOCATION_LOCK), String.class);
+    }
+
+    public List<Long> nextValues(int count) {
+        return jdbc.queryForList("SELECT nextval('" + SEQUENCE + "') FROM generate_series(1, :count)",
+                Map.of("count", count), Long.class);
+    }
+}
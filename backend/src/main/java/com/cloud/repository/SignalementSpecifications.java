@@ -0,0 +1,58 @@
+package com.cloud.repository;
+
+import com.cloud.model.Signalement;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.sql.Timestamp;
+
+/**
+ * Critères réutilisables pour filtrer les signalements côté serveur.
+ * Chaque critère correspond à une colonne indexée de la table signalement.
+ */
+public final class SignalementSpecifications {
+
+    private SignalementSpecifications() {
+    }
+
+    public static Specification<Signalement> hasStatut(String statut) {
+        return (root, query, cb) -> cb.equal(root.get("statut"), statut);
+    }
+
+    public static Specification<Signalement> hasEntreprise(String entreprise) {
+        return (root, query, cb) -> cb.equal(root.get("entreprise"), entreprise);
+    }
+
+    public static Specification<Signalement> hasNiveau(Integer niveau) {
+        return (root, query, cb) -> cb.equal(root.get("niveau"), niveau);
+    }
+
+    public static Specification<Signalement> dateFrom(Timestamp from) {
+        return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("dateSignalement"), from);
+    }
+
+    public static Specification<Signalement> dateTo(Timestamp to) {
+        return (root, query, cb) -> cb.lessThan(root.get("dateSignalement"), to);
+    }
+
+    /**
+     * Condition de keyset pour l'ordre (dateSignalement DESC NULLS LAST, idSignalement DESC),
+     * lignes datées seulement : équivaut à (date, id) &lt; (lastDate, lastId), écrit avec la
+     * borne date &lt;= lastDate en tête pour un parcours d'index par plage. Les lignes sans date
+     * (en fin de tri) se lisent ensuite avec undatedAfter(null).
+     */
+    public static Specification<Signalement> datedBefore(Timestamp lastDate, String lastId) {
+        return (root, query, cb) -> cb.and(
+                cb.lessThanOrEqualTo(root.get("dateSignalement"), lastDate),
+                cb.or(cb.lessThan(root.get("dateSignalement"), lastDate),
+                        cb.lessThan(root.get("idSignalement"), lastId)));
+    }
+
+    /**
+     * Lignes sans date (fin du tri keyset), après lastId ; lastId null = depuis le début de cette zone
+     */
+    public static Specification<Signalement> undatedAfter(String lastId) {
+        return (root, query, cb) -> lastId == null
+                ? cb.isNull(root.get("dateSignalement"))
+                : cb.and(cb.isNull(root.get("dateSignalement")), cb.lessThan(root.get("idSignalement"), lastId));
+    }
+}
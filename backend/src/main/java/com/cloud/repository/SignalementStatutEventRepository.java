@@ -0,0 +1,128 @@
+package com.cloud.repository;
+
+import com.cloud.dto.SignalementStatutEvent;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Historique des statuts, en JDBC : la table est partitionnée par mois (PostgreSQL),
+ * ce que ddl-auto ne sait pas déclarer. Elle n'a donc pas d'entité JPA ; le schéma
+ * est créé ici (IF NOT EXISTS) et les partitions mensuelles à la demande.
+ */
+@Repository
+public class SignalementStatutEventRepository {
+
+    public static final String TABLE = "signalement_statut_event";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    private static final RowMapper<SignalementStatutEvent> ROW_MAPPER = (rs, i) -> new SignalementStatutEvent(
+            rs.getLong("id_event"), rs.getString("id_signalement"), rs.getString("ancien_statut"),
+            rs.getString("nouveau_statut"), rs.getTimestamp("date_event"));
+
+    private final NamedParameterJdbcTemplate jdbc;
+
+    public SignalementStatutEventRepository(NamedParameterJdbcTemplate jdbc) {
+        this.jdbc = jdbc;
+    }
+
+    public void createSchema() {
+        var ops = jdbc.getJdbcOperations();
+        ops.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " ("
+                + "id_event BIGINT GENERATED ALWAYS AS IDENTITY, "
+                + "id_signalement VARCHAR(255) NOT NULL, "
+                + "ancien_statut VARCHAR(255), "
+                + "nouveau_statut VARCHAR(255), "
+                + "date_event TIMESTAMP NOT NULL, "
+                + "PRIMARY KEY (id_event, date_event)"
+                + ") PARTITION BY RANGE (date_event)");
+        // Chronologie d'un signalement, et dernier statut avant une date (statut à l'instant T)
+        ops.execute("CREATE INDEX IF NOT EXISTS idx_statut_event_signalement_date ON " + TABLE
+                + " (id_signalement, date_event DESC, id_event DESC) INCLUDE (nouveau_statut)");
+    }
+
+    /**
+     * Crée la partition du mois si elle n'existe pas (DDL : à appeler hors de la transaction d'écriture)
+     */
+    public void createPartition(YearMonth month) {
+        jdbc.getJdbcOperations().execute("CREATE TABLE IF NOT EXISTS " + TABLE + "_" + month.format(PARTITION_SUFFIX)
+                + " PARTITION OF " + TABLE
+                + " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')");
+    }
+
+    public boolean isEmpty() {
+        return Boolean.FALSE.equals(jdbc.getJdbcOperations().queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM " + TABLE + ")", Boolean.class));
+    }
+
+    /**
+     * Ajoute les événements en un seul batch (table en ajout seul : jamais d'UPDATE ni de DELETE)
+     */
+    public void appendAll(List<SignalementStatutEvent> events) {
+        SqlParameterSource[] batch = new SqlParameterSource[events.size()];
+        for (int i = 0; i < events.size(); i++) {
+            SignalementStatutEvent e = events.get(i);
+            batch[i] = new MapSqlParameterSource()
+                    .addValue("id", e.getIdSignalement(), Types.VARCHAR)
+                    .addValue("ancien", e.getAncienStatut(), Types.VARCHAR)
+                    .addValue("nouveau", e.getNouveauStatut(), Types.VARCHAR)
+                    .addValue("date", e.getDateEvent(), Types.TIMESTAMP);
+        }
+        jdbc.batchUpdate("INSERT INTO " + TABLE + " (id_signalement, ancien_statut, nouveau_statut, date_event) "
+                + "VALUES (:id, :ancien, :nouveau, :date)", batch);
+    }
+
+    public List<SignalementStatutEvent> findTimeline(String idSignalement) {
+        return jdbc.query("SELECT * FROM " + TABLE + " WHERE id_signalement = :id "
+                + "ORDER BY date_event, id_event", Map.of("id", idSignalement), ROW_MAPPER);
+    }
+
+    /**
+     * Dernier événement de chaque signalement existant à la date at. Un seul parcours des
+     * partitions antérieures à at (les suivantes sont écartées par la borne sur date_event),
+     * au lieu d'une recherche dans chaque partition pour chaque signalement.
+     */
+    public List<SignalementStatutEvent> findStatutsAt(Timestamp at) {
+        return jdbc.query("SELECT DISTINCT ON (e.id_signalement) e.* FROM " + TABLE + " e "
+                + "WHERE e.date_event <= :at "
+                + "AND EXISTS (SELECT 1 FROM signalement s WHERE s.id_signalement = e.id_signalement) "
+                + "ORDER BY e.id_signalement, e.date_event DESC, e.id_event DESC", Map.of("at", at), ROW_MAPPER);
+    }
+
+    /**
+     * Reconstitue l'historique connu des signalements existants à partir des trois colonnes de dates
+     *
+     * @return nombre d'événements créés
+     */
+    public int backfillFromSignalementDates() {
+        var ops = jdbc.getJdbcOperations();
+        String insert = "INSERT INTO " + TABLE + " (id_signalement, ancien_statut, nouveau_statut, date_event) ";
+        return ops.update(insert + "SELECT id_signalement, NULL, 'nouveau', date_nouveau "
+                        + "FROM signalement WHERE date_nouveau IS NOT NULL")
+                + ops.update(insert + "SELECT id_signalement, 'nouveau', 'en cours', date_en_cours "
+                        + "FROM signalement WHERE date_en_cours IS NOT NULL")
+                + ops.update(insert + "SELECT id_signalement, 'en cours', 'termine', date_termine "
+                        + "FROM signalement WHERE date_termine IS NOT NULL");
+    }
+
+    /**
+     * Mois couverts par les dates d'avancement existantes (partitions nécessaires au rattrapage)
+     */
+    public List<YearMonth> findSignalementDateMonths() {
+        return jdbc.getJdbcOperations().query("SELECT DISTINCT date_trunc('month', d) FROM ("
+                        + "SELECT date_nouveau AS d FROM signalement UNION ALL "
+                        + "SELECT date_en_cours FROM signalement UNION ALL "
+                        + "SELECT date_termine FROM signalement) t WHERE d IS NOT NULL",
+                (rs, i) -> YearMonth.from(rs.getTimestamp(1).toLocalDateTime()));
+    }
+}
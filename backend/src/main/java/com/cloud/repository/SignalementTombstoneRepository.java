@@ -0,0 +1,29 @@
+package com.cloud.repository;
+
+import com.cloud.model.SignalementTombstone;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SignalementTombstoneRepository extends JpaRepository<SignalementTombstone, String> {
+
+    List<SignalementTombstone> findByRowVersionGreaterThanOrderByRowVersionAsc(Long rowVersion, Limit limit);
+
+    @Query("select coalesce(max(t.rowVersion), 0) from SignalementTombstone t")
+    long findMaxRowVersion();
+
+    /**
+     * Signalements recréés : leur nouvelle version remplace la suppression, sinon une même
+     * page de /changes les renverrait à la fois en upserts et en deleted
+     */
+    @Modifying
+    @Query("delete from SignalementTombstone t where t.idSignalement in :ids")
+    int deleteByIdSignalementIn(@Param("ids") Collection<String> ids);
+}
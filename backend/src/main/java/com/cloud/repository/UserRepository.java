@@ -1,13 +1,32 @@
 package com.cloud.repository;
 
+import com.cloud.config.CacheConfig;
+import com.cloud.dto.UserAccount;
 import com.cloud.model.User;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // Entité modifiable (connexions, verrouillage) : jamais mise en cache
     Optional<User> findByEmail(String email);
+
+    // Lu à chaque validation de jeton : projection immuable, mise en cache
+    @Cacheable(cacheNames = CacheConfig.USERS_BY_EMAIL, key = "#p0", unless = "#result == null")
+    @Query("select new com.cloud.dto.UserAccount(u.id, u.email, u.role, u.locked) from User u where u.email = :email")
+    Optional<UserAccount> findAccountByEmail(@Param("email") String email);
+
+    // Toute écriture (connexion, verrouillage, déblocage admin...) passe par save ; l'email
+    // a pu changer et l'ancienne clé n'est pas connue ici : le cache est vidé
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.USERS_BY_EMAIL, allEntries = true)
+    <S extends User> S save(S user);
+
     boolean existsByRoleIgnoreCase(String role);
     java.util.List<User> findByLockedTrue();
 }
@@ -0,0 +1,9 @@
+package com.cloud.repository;
+
+import com.cloud.model.Watermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface WatermarkRepository extends JpaRepository<Watermark, String> {
+}
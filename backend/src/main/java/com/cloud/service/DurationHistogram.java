@@ -0,0 +1,110 @@
+package com.cloud.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogramme de durées (en secondes) à seaux log-linéaires, façon HdrHistogram :
+ * précision relative d'environ 1,5 % de 0 à plusieurs siècles, mémoire fixe
+ * (BUCKET_COUNT compteurs) et fusionnable par simple addition des compteurs.
+ * Les compteurs sont atomiques : ajout et retrait concurrents sans verrou.
+ */
+final class DurationHistogram {
+
+    // 2^SUB_BUCKET_BITS seaux par puissance de 2 ; les valeurs < 2 * SUB_BUCKETS sont exactes
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+    // Durées jusqu'à 2^35 s (~1000 ans), au-delà ramenées au dernier seau
+    private static final int MAX_EXPONENT = 34;
+    static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+    void record(long seconds, int sign) {
+        counts.addAndGet(index(seconds), sign);
+    }
+
+    void mergeInto(long[] target) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            target[i] += counts.get(i);
+        }
+    }
+
+    static int index(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) Math.max(0, value);
+        }
+        int exponent = Math.min(63 - Long.numberOfLeadingZeros(value), MAX_EXPONENT);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int sub = (int) Math.min(value >> shift, 2 * SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + (sub - SUB_BUCKETS);
+    }
+
+    static long lowerBound(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int block = (index - LINEAR_LIMIT) / SUB_BUCKETS;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS + SUB_BUCKETS;
+        return (long) sub << (block + 1);
+    }
+
+    static long upperBound(int index) {
+        return index + 1 < BUCKET_COUNT ? lowerBound(index + 1) : Long.MAX_VALUE;
+    }
+
+    /**
+     * Résumé d'un histogramme fusionné : effectif, percentiles et seaux non vides (en jours)
+     */
+    static Map<String, Object> summarize(long[] counts) {
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("count", total);
+        result.put("p50Jours", percentileDays(counts, total, 0.50));
+        result.put("p90Jours", percentileDays(counts, total, 0.90));
+        result.put("p99Jours", percentileDays(counts, total, 0.99));
+        result.put("maxJours", percentileDays(counts, total, 1.0));
+
+        List<Map<String, Object>> buckets = new ArrayList<>();
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                Map<String, Object> bucket = new LinkedHashMap<>();
+                bucket.put("deJours", toDays(lowerBound(i)));
+                bucket.put("aJours", toDays(upperBound(i)));
+                bucket.put("count", counts[i]);
+                buckets.add(bucket);
+            }
+        }
+        result.put("distribution", buckets);
+        return result;
+    }
+
+    // Milieu du seau qui contient le rang demandé
+    private static double percentileDays(long[] counts, long total, double quantile) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long low = lowerBound(i);
+                long high = upperBound(i);
+                return toDays(high == Long.MAX_VALUE ? low : low + (high - low) / 2);
+            }
+        }
+        return 0;
+    }
+
+    private static double toDays(long seconds) {
+        return Math.round(seconds / 8640d) / 10.0;
+    }
+}
@@ -1,16 +1,30 @@
 package com.cloud.service;
 
+import com.cloud.dto.FirestoreExportReport;
 import com.google.api.core.ApiFuture;
+import com.google.api.core.ApiFutureCallback;
+import com.google.api.core.ApiFutures;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.cloud.firestore.*;
 import com.google.firebase.cloud.FirestoreClient;
 import com.google.firebase.FirebaseApp;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
+import io.grpc.Status;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Service
 @RequiredArgsConstructor
@@ -18,6 +32,15 @@ public class FireStoreService {
     
     private static final org.slf4j.Logger log = org.slf4j.LoggerFactory.getLogger(FireStoreService.class);
     
+    // Écritures soumises au BulkWriter et pas encore confirmées, au plus
+    private static final int EXPORT_MAX_IN_FLIGHT = 1000;
+    private static final int EXPORT_MAX_ATTEMPTS = 5;
+    // Limite d'écritures d'un WriteBatch Firestore
+    private static final int ACK_BATCH_SIZE = 500;
+    private static final Set<Status.Code> RETRYABLE_CODES = EnumSet.of(Status.Code.UNAVAILABLE,
+            Status.Code.ABORTED, Status.Code.DEADLINE_EXCEEDED, Status.Code.RESOURCE_EXHAUSTED,
+            Status.Code.INTERNAL);
+
     private final FirebaseApp firebaseApp;
     
     /**
@@ -111,35 +134,91 @@ public class FireStoreService {
     /**
      * Sauvegarder tous les signalements SQL dans Firestore (collection signalements)
      */
-    public int saveAllSignalementsToFirestore(List<com.cloud.model.Signalement> signalements) {
-        Firestore db = getFirestore();
-        int count = 0;
+    public FirestoreExportReport saveAllSignalementsToFirestore(List<com.cloud.model.Signalement> signalements) {
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>();
         for (com.cloud.model.Signalement s : signalements) {
-            try {
-                Map<String, Object> data = new HashMap<>();
-                data.put("idSignalement", s.getIdSignalement());
-                data.put("titre", s.getTitre());
-                data.put("description", s.getDescription());
-                data.put("latitude", s.getLatitude());
-                data.put("longitude", s.getLongitude());
-                data.put("dateSignalement", s.getDateSignalement() != null ? s.getDateSignalement().toString() : null);
-                data.put("statut", s.getStatut());
-                data.put("surfaceM2", s.getSurfaceM2());
-                data.put("budget", s.getBudget());
-                data.put("entreprise", s.getEntreprise());
-                data.put("id_user", s.getUtilisateur() != null ? s.getUtilisateur().getId() : null);
-                // Ajouter les dates d'avancement
-                data.put("dateNouveau", s.getDateNouveau() != null ? s.getDateNouveau().toString() : null);
-                data.put("dateEnCours", s.getDateEnCours() != null ? s.getDateEnCours().toString() : null);
-                data.put("dateTermine", s.getDateTermine() != null ? s.getDateTermine().toString() : null);
-                data.put("avancement", s.getAvancement());
-                db.collection("signalements").document(String.valueOf(s.getIdSignalement())).set(data);
-                count++;
-            } catch (Exception e) {
-                log.warn("Erreur lors de l'export du signalement {}: {}", s.getIdSignalement(), e.getMessage());
+            documents.put(String.valueOf(s.getIdSignalement()), SignalementFirestoreMapping.toDocument(s));
+        }
+        return writeSignalements(documents, List.of());
+    }
+
+    /**
+     * Écrit des documents de la collection signalements (en merge : seuls les champs fournis
+     * sont remplacés) et en supprime d'autres. Écritures groupées par BulkWriter (lots,
+     * limitation de débit et nouvelles tentatives avec backoff exponentiel sur les erreurs
+     * transitoires) ; au plus EXPORT_MAX_IN_FLIGHT écritures en attente à la fois.
+     * Le bilan ne compte que les écritures confirmées par le serveur.
+     */
+    public FirestoreExportReport writeSignalements(Map<String, Map<String, Object>> documents,
+                                                   Collection<String> deletions) {
+        Firestore db = getFirestore();
+        CollectionReference collection = db.collection("signalements");
+        Semaphore inFlight = new Semaphore(EXPORT_MAX_IN_FLIGHT);
+        Set<String> confirmed = ConcurrentHashMap.newKeySet();
+
+        BulkWriter writer = db.bulkWriter();
+        writer.addWriteErrorListener(error -> error.getFailedAttempts() < EXPORT_MAX_ATTEMPTS
+                && RETRYABLE_CODES.contains(error.getStatus().getCode()));
+        try {
+            for (Map.Entry<String, Map<String, Object>> e : documents.entrySet()) {
+                inFlight.acquire();
+                submit(e.getKey(), () -> writer.set(collection.document(e.getKey()), e.getValue(), SetOptions.merge()),
+                        inFlight, confirmed);
+            }
+            for (String id : deletions) {
+                inFlight.acquire();
+                submit(id, () -> writer.delete(collection.document(id)), inFlight, confirmed);
+            }
+            // Attend la fin de toutes les écritures (et de leurs nouvelles tentatives)
+            writer.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Export Firestore interrompu");
+        } catch (ExecutionException e) {
+            log.warn("Erreur lors de la finalisation de l'export Firestore: {}", e.getMessage());
+        }
+
+        // Écritures en erreur, jamais soumises ou non confirmées (interruption)
+        List<String> failedIds = new ArrayList<>();
+        for (String id : documents.keySet()) {
+            if (!confirmed.contains(id)) {
+                failedIds.add(id);
+            }
+        }
+        for (String id : deletions) {
+            if (!confirmed.contains(id)) {
+                failedIds.add(id);
             }
         }
-        return count;
+        int total = documents.size() + deletions.size();
+        log.info("Export Firestore : {} / {} écritures confirmées, {} en échec",
+                total - failedIds.size(), total, failedIds.size());
+        return new FirestoreExportReport(total, total - failedIds.size(), failedIds.size(), failedIds);
+    }
+
+    // Soumet une écriture ; le jeton inFlight (déjà pris) est rendu quand elle se termine
+    private void submit(String id, Supplier<ApiFuture<WriteResult>> write, Semaphore inFlight, Set<String> confirmed) {
+        ApiFuture<WriteResult> future;
+        try {
+            future = write.get();
+        } catch (RuntimeException e) {
+            inFlight.release();
+            log.warn("Erreur lors de l'export du signalement {}: {}", id, e.getMessage());
+            return;
+        }
+        ApiFutures.addCallback(future, new ApiFutureCallback<>() {
+            @Override
+            public void onSuccess(WriteResult result) {
+                confirmed.add(id);
+                inFlight.release();
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                log.warn("Erreur lors de l'export du signalement {}: {}", id, t.getMessage());
+                inFlight.release();
+            }
+        }, MoreExecutors.directExecutor());
     }
 
     /**
@@ -164,100 +243,157 @@ public class FireStoreService {
     }
 
     /**
-     * Récupérer uniquement les signalements non importés depuis Firestore
-     * (ceux où importedToSQL n'existe pas ou est false)
+     * Parcourt les signalements non importés (importedToSQL == false) par pages de pageSize,
+     * avec un curseur startAfter sur l'identifiant de document : une seule requête indexée,
+     * et chaque page est traitée avant de lire la suivante (mémoire bornée).
+     *
+     * @return nombre de documents lus
      */
-    public List<Map<String, Object>> getUnimportedSignalementsFromFirestore() {
-        Firestore db = getFirestore();
-        List<Map<String, Object>> result = new java.util.ArrayList<>();
-        try {
-            ApiFuture<QuerySnapshot> future = db.collection("signalements")
-                .whereEqualTo("importedToSQL", false)
-                .get();
-            List<QueryDocumentSnapshot> docs = future.get().getDocuments();
+    public int forEachUnimportedPage(int pageSize, Consumer<List<Map<String, Object>>> handler)
+            throws ExecutionException, InterruptedException {
+        Query query = getFirestore().collection("signalements")
+            .whereEqualTo("importedToSQL", false)
+            .orderBy(FieldPath.documentId())
+            .limit(pageSize);
+        DocumentSnapshot last = null;
+        int read = 0;
+        while (true) {
+            List<QueryDocumentSnapshot> docs = (last == null ? query : query.startAfter(last)).get().get().getDocuments();
+            if (docs.isEmpty()) {
+                break;
+            }
+            List<Map<String, Object>> page = new ArrayList<>(docs.size());
             for (QueryDocumentSnapshot doc : docs) {
                 Map<String, Object> data = doc.getData();
                 data.put("id", doc.getId());
-                result.add(data);
+                page.add(data);
+            }
+            handler.accept(page);
+            read += docs.size();
+            if (docs.size() < pageSize) {
+                break;
             }
-            
-            // Ajouter aussi ceux qui n'ont pas le champ importedToSQL
-            ApiFuture<QuerySnapshot> futureNoField = db.collection("signalements").get();
-            List<QueryDocumentSnapshot> allDocs = futureNoField.get().getDocuments();
-            for (QueryDocumentSnapshot doc : allDocs) {
-                if (!doc.contains("importedToSQL")) {
-                    Map<String, Object> data = doc.getData();
-                    data.put("id", doc.getId());
-                    // Vérifier si pas déjà ajouté
-                    boolean alreadyAdded = result.stream()
-                        .anyMatch(r -> r.get("id").equals(doc.getId()));
-                    if (!alreadyAdded) {
-                        result.add(data);
+            last = docs.get(docs.size() - 1);
+        }
+        log.info("{} signalements non importés lus dans Firestore", read);
+        return read;
+    }
+
+    /**
+     * Écoute les signalements non importés (importedToSQL == false) : un premier instantané
+     * avec ceux en attente, puis chaque création ou modification. Les documents marqués
+     * importés sortent de la requête (changement REMOVED).
+     */
+    public ListenerRegistration listenUnimportedSignalements(EventListener<QuerySnapshot> listener) {
+        return getFirestore().collection("signalements")
+            .whereEqualTo("importedToSQL", false)
+            .addSnapshotListener(listener);
+    }
+
+    /**
+     * Pose importedToSQL = false sur les documents qui n'ont pas encore ce champ (créés avant
+     * qu'il soit toujours renseigné), pour qu'ils soient vus par forEachUnimportedPage.
+     * Parcours paginé qui ne lit que ce champ.
+     *
+     * @return nombre de documents complétés
+     */
+    public int flagDocumentsWithoutImportState(int pageSize) throws ExecutionException, InterruptedException {
+        Firestore db = getFirestore();
+        Query query = db.collection("signalements")
+            .select("importedToSQL")
+            .orderBy(FieldPath.documentId())
+            .limit(pageSize);
+        BulkWriter writer = db.bulkWriter();
+        DocumentSnapshot last = null;
+        int flagged = 0;
+        try {
+            while (true) {
+                List<QueryDocumentSnapshot> docs = (last == null ? query : query.startAfter(last)).get().get().getDocuments();
+                for (QueryDocumentSnapshot doc : docs) {
+                    if (!doc.contains("importedToSQL")) {
+                        writer.update(doc.getReference(), "importedToSQL", false);
+                        flagged++;
                     }
                 }
+                // Attendre la page avant la suivante : au plus pageSize écritures en attente
+                writer.flush().get();
+                if (docs.size() < pageSize) {
+                    break;
+                }
+                last = docs.get(docs.size() - 1);
             }
-            
-            log.info("{} signalements non importés trouvés dans Firestore", result.size());
-        } catch (Exception e) {
-            log.warn("Erreur lors de la récupération des signalements non importés: {}", e.toString());
-            log.debug("Stack: ", e);
+        } finally {
+            writer.close();
         }
-        return result;
+        log.info("importedToSQL ajouté à {} signalements Firestore", flagged);
+        return flagged;
     }
     
     /**
-     * Marquer un signalement comme importé dans SQL
+     * Marquer des signalements comme importés dans SQL, par WriteBatch de
+     * ACK_BATCH_SIZE documents (un aller-retour par lot). Un lot refusé (il échoue en entier,
+     * par exemple si un document a été supprimé entre-temps) est repris document par
+     * document ; un document supprimé n'a plus rien à marquer.
+     *
+     * @return identifiants non marqués (erreur), à réimporter
      */
-    public void markSignalementAsImported(String signalementId) {
-        try {
-            Firestore db = getFirestore();
-            Map<String, Object> update = new HashMap<>();
-            update.put("importedToSQL", true);
-            update.put("importedAt", FieldValue.serverTimestamp());
-            
-            db.collection("signalements")
-                .document(signalementId)
-                .update(update);
-            
-            log.info("Signalement {} marqué comme importé dans Firestore", signalementId);
-        } catch (Exception e) {
-            log.warn("Erreur lors du marquage du signalement {} comme importé: {}", 
-                     signalementId, e.getMessage());
+    public List<String> markSignalementsAsImported(List<String> signalementIds) {
+        Firestore db = getFirestore();
+        CollectionReference collection = db.collection("signalements");
+        List<String> unmarked = new ArrayList<>();
+        for (int from = 0; from < signalementIds.size(); from += ACK_BATCH_SIZE) {
+            List<String> chunk = signalementIds.subList(from, Math.min(from + ACK_BATCH_SIZE, signalementIds.size()));
+            WriteBatch batch = db.batch();
+            for (String id : chunk) {
+                batch.update(collection.document(id), "importedToSQL", true, "importedAt", FieldValue.serverTimestamp());
+            }
+            try {
+                batch.commit().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                unmarked.addAll(signalementIds.subList(from, signalementIds.size()));
+                break;
+            } catch (ExecutionException e) {
+                log.warn("Marquage groupé de {} signalements refusé, reprise un par un: {}", chunk.size(),
+                        e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                unmarked.addAll(markOneByOne(collection, chunk));
+            }
         }
+        return unmarked;
     }
 
-    /**
-     * Sauvegarder ou mettre à jour un seul signalement dans Firestore
-     * Utilise merge pour préserver les champs existants (type, importedToSQL, etc.)
-     */
-    public void saveSignalementToFirestore(com.cloud.model.Signalement s) {
-        try {
-            Firestore db = getFirestore();
-            Map<String, Object> data = new HashMap<>();
-            data.put("idSignalement", s.getIdSignalement());
-            data.put("titre", s.getTitre());
-            data.put("description", s.getDescription());
-            data.put("latitude", s.getLatitude());
-            data.put("longitude", s.getLongitude());
-            data.put("dateSignalement", s.getDateSignalement() != null ? s.getDateSignalement().toString() : null);
-            data.put("statut", s.getStatut());
-            data.put("surfaceM2", s.getSurfaceM2());
-            data.put("budget", s.getBudget());
-            data.put("entreprise", s.getEntreprise());
-            data.put("id_user", s.getUtilisateur() != null ? s.getUtilisateur().getId() : null);
-            // Ajouter les dates d'avancement
-            data.put("dateNouveau", s.getDateNouveau() != null ? s.getDateNouveau().toString() : null);
-            data.put("dateEnCours", s.getDateEnCours() != null ? s.getDateEnCours().toString() : null);
-            data.put("dateTermine", s.getDateTermine() != null ? s.getDateTermine().toString() : null);
-            data.put("avancement", s.getAvancement());
-            
-            // Utiliser merge pour préserver les champs existants dans Firebase
-            db.collection("signalements").document(String.valueOf(s.getIdSignalement()))
-                .set(data, SetOptions.merge());
-            
-            log.info("Signalement {} mis à jour dans Firestore (merge)", s.getIdSignalement());
-        } catch (Exception e) {
-            log.warn("Erreur sauvegarde signalement dans Firestore {}: {}", s.getIdSignalement(), e.getMessage());
+    private List<String> markOneByOne(CollectionReference collection, List<String> ids) {
+        Map<String, ApiFuture<WriteResult>> writes = new LinkedHashMap<>();
+        for (String id : ids) {
+            writes.put(id, collection.document(id).update("importedToSQL", true, "importedAt", FieldValue.serverTimestamp()));
+        }
+        List<String> unmarked = new ArrayList<>();
+        for (Map.Entry<String, ApiFuture<WriteResult>> w : writes.entrySet()) {
+            try {
+                w.getValue().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                unmarked.add(w.getKey());
+            } catch (ExecutionException e) {
+                if (!isNotFound(e.getCause())) {
+                    log.warn("Erreur lors du marquage du signalement {} comme importé: {}", w.getKey(),
+                            e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+                    unmarked.add(w.getKey());
+                }
+            }
+        }
+        return unmarked;
+    }
+
+    private static boolean isNotFound(Throwable t) {
+        for (; t != null; t = t.getCause()) {
+            if (t instanceof FirestoreException fe && fe.getStatus() != null) {
+                return fe.getStatus().getCode() == Status.Code.NOT_FOUND;
+            }
+            if (t instanceof com.google.api.gax.rpc.ApiException api) {
+                return api.getStatusCode().getCode() == com.google.api.gax.rpc.StatusCode.Code.NOT_FOUND;
+            }
         }
+        return false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,284 @@
+package com.cloud.service;
+
+import com.cloud.model.Signalement;
+import com.google.cloud.firestore.DocumentChange;
+import com.google.cloud.firestore.FirestoreException;
+import com.google.cloud.firestore.ListenerRegistration;
+import com.google.cloud.firestore.QueryDocumentSnapshot;
+import com.google.cloud.firestore.QuerySnapshot;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Import continu Firestore -> SQL : un listener sur les signalements non importés met les
+ * documents en file, un thread les applique par micro-lots (conversion, utilisateurs,
+ * UPSERT groupé, marquage importé). Le marquage importedToSQL sert de point de reprise :
+ * après un redémarrage, le premier instantané ne contient que les documents pas encore
+ * appliqués ; si le marquage échoue, le listener est réabonné pour que ces documents
+ * reviennent et soient réappliqués (UPSERT idempotent). Si Postgres ralentit, la file se
+ * remplit et le listener est détaché jusqu'à ce qu'elle se vide à moitié ; les documents
+ * arrivés entre-temps restent en attente dans Firestore et reviennent avec le nouvel instantané.
+ */
+@Service
+public class FirestoreChangeIngestion {
+
+    private static final Logger log = LoggerFactory.getLogger(FirestoreChangeIngestion.class);
+
+    private static final int BATCH_SIZE = 500;
+    private static final int QUEUE_CAPACITY = 5000;
+    // Attente maximale pour compléter un micro-lot
+    private static final long LINGER_MS = 200;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    private final FireStoreService fireStoreService;
+    private final SignalementService signalementService;
+    private final FirestoreImportService importService;
+    private final boolean enabled;
+
+    // Identifiants en file ; pending garde la dernière version reçue de chaque document en file
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Map<String, Change> pending = new ConcurrentHashMap<>();
+    private final AtomicLong applied = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    // Date de mise à jour Firestore (ms) la plus récente appliquée, pour suivre le retard
+    private volatile long lastAppliedUpdate;
+
+    private volatile ListenerRegistration registration;
+    private volatile boolean running;
+    private volatile long resubscribeAt;
+    private volatile long listenerBackoffMs;
+    private Thread worker;
+
+    public FirestoreChangeIngestion(FireStoreService fireStoreService, SignalementService signalementService,
+                                    FirestoreImportService importService,
+                                    @Value("${firestore.ingestion.enabled:true}") boolean enabled) {
+        this.fireStoreService = fireStoreService;
+        this.signalementService = signalementService;
+        this.importService = importService;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::run, "firestore-ingestion");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        unsubscribe();
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void run() {
+        try {
+            importService.flagLegacyDocuments();
+        } catch (InterruptedException e) {
+            running = false;
+            return;
+        } catch (Exception e) {
+            log.warn("Documents Firestore sans importedToSQL non complétés: {}", e.toString());
+        }
+        long backoffMs = 0;
+        List<Change> batch = new ArrayList<>();
+        try {
+            while (running) {
+                boolean ok;
+                try {
+                    if (registration == null && queue.size() <= QUEUE_CAPACITY / 2
+                            && System.currentTimeMillis() >= resubscribeAt) {
+                        subscribe();
+                    }
+                    if (batch.isEmpty()) {
+                        nextBatch(batch);
+                    }
+                    if (batch.isEmpty()) {
+                        continue;
+                    }
+                    ok = apply(batch);
+                } catch (RuntimeException e) {
+                    // Abonnement ou marquage Firestore en échec : le thread continue, lot rejoué
+                    log.warn("Erreur de l'import continu Firestore, nouvel essai: {}", e.toString());
+                    ok = false;
+                }
+                if (ok) {
+                    batch.clear();
+                    backoffMs = 0;
+                } else {
+                    // Postgres indisponible : même lot rejoué, la file se remplit et le listener se détache
+                    backoffMs = Math.min(MAX_BACKOFF_MS, Math.max(500, backoffMs * 2));
+                    Thread.sleep(backoffMs);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            // getStatus ne doit pas annoncer un import actif sans thread
+            running = false;
+            unsubscribe();
+        }
+    }
+
+    private synchronized void subscribe() {
+        if (!running || registration != null) {
+            return;
+        }
+        registration = fireStoreService.listenUnimportedSignalements(this::onSnapshot);
+        log.info("Écoute des signalements Firestore non importés");
+    }
+
+    private synchronized void unsubscribe() {
+        if (registration != null) {
+            registration.remove();
+            registration = null;
+        }
+    }
+
+    private void onSnapshot(QuerySnapshot snapshot, FirestoreException error) {
+        if (error != null) {
+            // Le listener est terminé : nouvel abonnement après un délai croissant
+            listenerBackoffMs = Math.min(MAX_BACKOFF_MS, Math.max(1000, listenerBackoffMs * 2));
+            log.warn("Listener Firestore interrompu, reprise dans {} ms: {}", listenerBackoffMs, error.getMessage());
+            resubscribeAt = System.currentTimeMillis() + listenerBackoffMs;
+            unsubscribe();
+            return;
+        }
+        listenerBackoffMs = 0;
+        for (DocumentChange change : snapshot.getDocumentChanges()) {
+            if (change.getType() == DocumentChange.Type.REMOVED) {
+                continue;
+            }
+            QueryDocumentSnapshot doc = change.getDocument();
+            Map<String, Object> data = doc.getData();
+            data.put("id", doc.getId());
+            Change next = new Change(doc.getId(), data, doc.getUpdateTime().toDate().getTime());
+            // Déjà en file : seule la version la plus récente sera appliquée
+            if (pending.put(doc.getId(), next) == null && !queue.offer(doc.getId())) {
+                pending.remove(doc.getId(), next);
+                log.info("File d'import pleine ({} documents), écoute suspendue", QUEUE_CAPACITY);
+                unsubscribe();
+                return;
+            }
+        }
+    }
+
+    // Une modification reçue après la sortie de file est remise en file et appliquée au lot suivant
+    private void nextBatch(List<Change> batch) throws InterruptedException {
+        String id = queue.poll(1, TimeUnit.SECONDS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(LINGER_MS);
+        while (id != null) {
+            Change change = pending.remove(id);
+            if (change != null) {
+                batch.add(change);
+            }
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= BATCH_SIZE || remaining <= 0) {
+                break;
+            }
+            id = queue.poll(remaining, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * @return false si l'UPSERT a échoué (lot à rejouer)
+     */
+    private boolean apply(List<Change> batch) {
+        List<Signalement> signalements = new ArrayList<>(batch.size());
+        List<Change> changes = new ArrayList<>(batch.size());
+        for (Change change : batch) {
+            try {
+                signalements.add(SignalementFirestoreMapping.fromDocument(change.data));
+                changes.add(change);
+            } catch (RuntimeException e) {
+                // Laissé en attente dans Firestore : repris au prochain import manuel ou redémarrage
+                errors.incrementAndGet();
+                log.warn("Erreur lors de l'import du signalement {}: {}", change.id, e.getMessage());
+            }
+        }
+        batch.retainAll(changes);
+        if (signalements.isEmpty()) {
+            return true;
+        }
+        try {
+            importService.resolveUsers(signalements);
+            signalementService.importBatch(signalements);
+        } catch (RuntimeException e) {
+            log.warn("Import de {} signalements Firestore en échec, nouvel essai: {}", signalements.size(), e.getMessage());
+            return false;
+        }
+
+        List<String> appliedIds = new ArrayList<>(signalements.size());
+        long lastUpdate = 0;
+        for (Change change : changes) {
+            lastUpdate = Math.max(lastUpdate, change.updateTime);
+            // Version plus récente déjà en file : marquée importée seulement une fois appliquée
+            if (!pending.containsKey(change.id)) {
+                appliedIds.add(change.id);
+            }
+        }
+        List<String> unmarked = fireStoreService.markSignalementsAsImported(appliedIds);
+        applied.addAndGet(changes.size());
+        lastAppliedUpdate = Math.max(lastAppliedUpdate, lastUpdate);
+        if (!unmarked.isEmpty()) {
+            // Le listener attaché ne les renverrait pas : nouvel instantané après un délai
+            errors.addAndGet(unmarked.size());
+            listenerBackoffMs = Math.min(MAX_BACKOFF_MS, Math.max(1000, listenerBackoffMs * 2));
+            log.warn("{} signalements appliqués mais non marqués importés, réabonnement dans {} ms",
+                    unmarked.size(), listenerBackoffMs);
+            resubscribeAt = System.currentTimeMillis() + listenerBackoffMs;
+            unsubscribe();
+        }
+        return true;
+    }
+
+    /**
+     * @return actif, connecte, enAttente, appliques, erreurs, dernierDocumentApplique
+     */
+    public Map<String, Object> getStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("actif", running);
+        status.put("connecte", registration != null);
+        status.put("enAttente", pending.size());
+        status.put("appliques", applied.get());
+        status.put("erreurs", errors.get());
+        long last = lastAppliedUpdate;
+        status.put("dernierDocumentApplique", last > 0 ? new Timestamp(last) : null);
+        return status;
+    }
+
+    private static final class Change {
+        final String id;
+        final Map<String, Object> data;
+        final long updateTime;
+
+        Change(String id, Map<String, Object> data, long updateTime) {
+            this.id = id;
+            this.data = data;
+            this.updateTime = updateTime;
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.cloud.service;
+
+import com.cloud.model.Signalement;
+import com.cloud.model.User;
+import com.cloud.model.Watermark;
+import com.cloud.repository.UserRepository;
+import com.cloud.repository.WatermarkRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Import Firestore -> SQL des signalements créés sur mobile, en pipeline :
+ * lecture des pages en attente (importedToSQL == false) -> conversion -> chargement des
+ * utilisateurs référencés (une requête IN par lot) -> UPSERT groupé -> marquage importé
+ * par WriteBatch. Chaque étape a son thread ; des files bornées les relient, donc une
+ * étape lente freine la lecture au lieu d'accumuler les pages en mémoire.
+ */
+@Service
+public class FirestoreImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(FirestoreImportService.class);
+
+    private static final int IMPORT_BATCH_SIZE = 500;
+    // Lots en attente entre deux étapes
+    private static final int QUEUE_CAPACITY = 4;
+    // Posé une fois tous les anciens documents complétés avec importedToSQL
+    static final String FLAG_WATERMARK = "firestore_import_flag";
+
+    private final FireStoreService fireStoreService;
+    private final SignalementService signalementService;
+    private final UserRepository userRepository;
+    private final WatermarkRepository watermarkRepository;
+
+    // Conversion, utilisateurs, UPSERT, marquage ; la lecture tourne dans le thread appelant
+    private final ExecutorService stages = Executors.newFixedThreadPool(4, r -> {
+        Thread t = new Thread(r, "firestore-import");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public FirestoreImportService(FireStoreService fireStoreService, SignalementService signalementService,
+                                  UserRepository userRepository, WatermarkRepository watermarkRepository) {
+        this.fireStoreService = fireStoreService;
+        this.signalementService = signalementService;
+        this.userRepository = userRepository;
+        this.watermarkRepository = watermarkRepository;
+    }
+
+    /**
+     * @return importedCount, errorCount, totalUnimported (documents lus), success, et le débit :
+     *         durationMs, documentsParSeconde, etapesMs (temps passé dans chaque étape)
+     */
+    public synchronized Map<String, Object> importPending() {
+        long start = System.nanoTime();
+        Map<String, LongAdder> busy = new LinkedHashMap<>();
+        for (String name : List.of("lecture", "conversion", "utilisateurs", "upsert", "marquage")) {
+            busy.put(name, new LongAdder());
+        }
+        BlockingQueue<Batch> pages = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Batch> parsed = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Batch> resolved = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        BlockingQueue<Batch> upserted = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicInteger imported = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+
+        CompletableFuture<?>[] running = {
+                stage(pages, parsed, busy.get("conversion"), this::parse),
+                stage(parsed, resolved, busy.get("utilisateurs"), this::resolveUsers),
+                stage(resolved, upserted, busy.get("upsert"), this::upsert),
+                stage(upserted, null, busy.get("marquage"), batch -> {
+                    acknowledge(batch);
+                    imported.addAndGet(batch.signalements.size());
+                    errors.addAndGet(batch.errors);
+                })
+        };
+
+        int read = 0;
+        boolean success = true;
+        try {
+            flagLegacyDocuments();
+            long[] pageStart = {System.nanoTime()};
+            read = fireStoreService.forEachUnimportedPage(IMPORT_BATCH_SIZE, page -> {
+                busy.get("lecture").add(System.nanoTime() - pageStart[0]);
+                put(pages, new Batch(page));
+                pageStart[0] = System.nanoTime();
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            success = false;
+        } catch (Exception e) {
+            log.warn("Erreur lors de la lecture des signalements Firestore: {}", e.toString());
+            success = false;
+        } finally {
+            put(pages, Batch.END);
+        }
+        CompletableFuture.allOf(running).join();
+
+        long elapsedMs = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        Map<String, Object> stageMs = new LinkedHashMap<>();
+        busy.forEach((name, nanos) -> stageMs.put(name, nanos.sum() / 1_000_000));
+        log.info("Import Firestore : {} importés, {} erreurs sur {} lus en {} ms ({})",
+                imported.get(), errors.get(), read, elapsedMs, stageMs);
+
+        Map<String, Object> resp = new HashMap<>();
+        resp.put("success", success);
+        resp.put("importedCount", imported.get());
+        resp.put("errorCount", errors.get());
+        resp.put("totalUnimported", read);
+        resp.put("durationMs", elapsedMs);
+        resp.put("documentsParSeconde", Math.round(read * 1000.0 / elapsedMs));
+        resp.put("etapesMs", stageMs);
+        return resp;
+    }
+
+    /**
+     * Documents créés avant que importedToSQL soit toujours posé : complétés une seule fois
+     */
+    void flagLegacyDocuments() throws ExecutionException, InterruptedException {
+        if (watermarkRepository.findById(FLAG_WATERMARK).isEmpty()) {
+            fireStoreService.flagDocumentsWithoutImportState(IMPORT_BATCH_SIZE);
+            watermarkRepository.save(new Watermark(FLAG_WATERMARK, 1));
+        }
+    }
+
+    /**
+     * Étape : applique step à chaque lot de in et le passe à out, jusqu'au marqueur de fin.
+     * Une erreur imprévue fait passer le lot en erreur sans arrêter le pipeline.
+     */
+    private CompletableFuture<Void> stage(BlockingQueue<Batch> in, BlockingQueue<Batch> out, LongAdder busy,
+                                          Consumer<Batch> step) {
+        return CompletableFuture.runAsync(() -> {
+            while (true) {
+                Batch batch = take(in);
+                if (batch == Batch.END) {
+                    if (out != null) {
+                        put(out, Batch.END);
+                    }
+                    return;
+                }
+                long t0 = System.nanoTime();
+                try {
+                    step.accept(batch);
+                } catch (RuntimeException e) {
+                    log.warn("Erreur lors de l'import d'un lot de signalements: {}", e.getMessage());
+                    batch.fail();
+                }
+                busy.add(System.nanoTime() - t0);
+                if (out != null) {
+                    put(out, batch);
+                }
+            }
+        }, stages);
+    }
+
+    private void parse(Batch batch) {
+        for (Map<String, Object> data : batch.documents) {
+            try {
+                batch.signalements.add(SignalementFirestoreMapping.fromDocument(data));
+            } catch (RuntimeException e) {
+                batch.errors++;
+                log.warn("Erreur lors de l'import du signalement {}: {}", data.get("id"), e.getMessage());
+            }
+        }
+        batch.documents = List.of();
+    }
+
+    private void resolveUsers(Batch batch) {
+        resolveUsers(batch.signalements);
+    }
+
+    // Utilisateurs référencés chargés en une requête ; un id inconnu est ignoré
+    void resolveUsers(List<Signalement> signalements) {
+        Set<Long> userIds = new HashSet<>();
+        for (Signalement s : signalements) {
+            if (s.getUtilisateur() != null) {
+                userIds.add(s.getUtilisateur().getId());
+            }
+        }
+        if (userIds.isEmpty()) {
+            return;
+        }
+        Map<Long, User> users = new HashMap<>();
+        for (User user : userRepository.findAllById(userIds)) {
+            users.put(user.getId(), user);
+        }
+        for (Signalement s : signalements) {
+            if (s.getUtilisateur() != null) {
+                s.setUtilisateur(users.get(s.getUtilisateur().getId()));
+            }
+        }
+    }
+
+    // Un seul UPSERT en batch pour le lot (une transaction)
+    private void upsert(Batch batch) {
+        if (!batch.signalements.isEmpty()) {
+            signalementService.importBatch(batch.signalements);
+        }
+    }
+
+    // Un document non marqué reste en attente et sera réimporté (UPSERT idempotent)
+    private void acknowledge(Batch batch) {
+        List<String> ids = new ArrayList<>(batch.signalements.size());
+        for (Signalement s : batch.signalements) {
+            ids.add(s.getIdSignalement());
+        }
+        if (!ids.isEmpty()) {
+            List<String> unmarked = fireStoreService.markSignalementsAsImported(ids);
+            if (!unmarked.isEmpty()) {
+                log.warn("{} signalements importés mais non marqués, réimportés au prochain passage", unmarked.size());
+            }
+        }
+    }
+
+    private static void put(BlockingQueue<Batch> queue, Batch batch) {
+        try {
+            queue.put(batch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrompu", e);
+        }
+    }
+
+    private static Batch take(BlockingQueue<Batch> queue) {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import interrompu", e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        stages.shutdownNow();
+    }
+
+    /**
+     * Une page de documents qui traverse les étapes
+     */
+    private static final class Batch {
+        static final Batch END = new Batch(List.of());
+
+        List<Map<String, Object>> documents;
+        final List<Signalement> signalements = new ArrayList<>();
+        int errors;
+
+        Batch(List<Map<String, Object>> documents) {
+            this.documents = documents;
+        }
+
+        // Les signalements convertis du lot ne sont ni enregistrés ni marqués
+        void fail() {
+            errors += signalements.size();
+            signalements.clear();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.cloud.service;
+
+import com.cloud.dto.FirestoreExportReport;
+import com.cloud.model.FirestoreOutboxEntry;
+import com.cloud.model.Signalement;
+import com.cloud.repository.FirestoreOutboxRepository;
+import com.cloud.repository.SignalementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Export incrémental vers Firestore. Chaque écriture de SignalementService ajoute, dans
+ * sa transaction, une entrée d'outbox (signalement et champs modifiés, ou suppression).
+ * drain() envoie seulement ces champs (merge) ou les suppressions et retire les entrées
+ * confirmées : le coût suit le nombre de changements, pas la taille de la table. Chaque
+ * passage relit toutes les entrées restantes, donc une entrée validée tard (identifiant
+ * attribué avant d'autres déjà envoyées) part au passage suivant.
+ */
+@Service
+public class FirestoreOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(FirestoreOutbox.class);
+
+    private static final int DRAIN_PAGE_SIZE = 2000;
+
+    private final FirestoreOutboxRepository outboxRepository;
+    private final SignalementRepository signalementRepository;
+    private final FireStoreService fireStoreService;
+
+    public FirestoreOutbox(FirestoreOutboxRepository outboxRepository, SignalementRepository signalementRepository,
+                           FireStoreService fireStoreService) {
+        this.outboxRepository = outboxRepository;
+        this.signalementRepository = signalementRepository;
+        this.fireStoreService = fireStoreService;
+    }
+
+    /**
+     * Champs du document modifiés (SignalementFirestoreMapping.ALL_FIELDS pour tout) ; rien si vide
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(String idSignalement, Set<String> fields) {
+        if (!fields.isEmpty()) {
+            outboxRepository.appendAll(List.of(entry(idSignalement, fields, false)));
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordAll(Map<String, Set<String>> fieldsById) {
+        List<FirestoreOutboxEntry> entries = new ArrayList<>();
+        fieldsById.forEach((id, fields) -> {
+            if (!fields.isEmpty()) {
+                entries.add(entry(id, fields, false));
+            }
+        });
+        if (!entries.isEmpty()) {
+            outboxRepository.appendAll(entries);
+        }
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(String idSignalement) {
+        outboxRepository.appendAll(List.of(entry(idSignalement, Set.of(), true)));
+    }
+
+    private static FirestoreOutboxEntry entry(String idSignalement, Set<String> fields, boolean supprime) {
+        return new FirestoreOutboxEntry(null, idSignalement, supprime ? null : String.join(",", fields), supprime,
+                new Timestamp(System.currentTimeMillis()));
+    }
+
+    /**
+     * Envoie les changements en attente, par pages. S'arrête à la première page dont une
+     * écriture échoue : ses entrées restent dans l'outbox et seront renvoyées au passage suivant.
+     */
+    @Scheduled(initialDelayString = "${firestore.outbox.initial-delay-ms:15000}",
+            fixedDelayString = "${firestore.outbox.drain-ms:30000}")
+    public synchronized FirestoreExportReport drain() {
+        int total = 0;
+        int exported = 0;
+        List<String> failedIds = new ArrayList<>();
+        while (true) {
+            List<FirestoreOutboxEntry> entries = outboxRepository.findFirst(DRAIN_PAGE_SIZE);
+            if (entries.isEmpty()) {
+                break;
+            }
+            FirestoreExportReport report = ship(entries);
+            total += report.getTotal();
+            exported += report.getExported();
+            failedIds.addAll(report.getFailedIds());
+
+            Set<String> failed = new HashSet<>(report.getFailedIds());
+            List<Long> done = new ArrayList<>();
+            for (FirestoreOutboxEntry e : entries) {
+                if (!failed.contains(e.getIdSignalement())) {
+                    done.add(e.getIdOutbox());
+                }
+            }
+            outboxRepository.deleteAll(done);
+            if (!failed.isEmpty() || entries.size() < DRAIN_PAGE_SIZE) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Outbox Firestore : {} / {} documents exportés", exported, total);
+        }
+        return new FirestoreExportReport(total, exported, failedIds.size(), failedIds);
+    }
+
+    // Fusionne les entrées d'un même signalement (la dernière décide entre écriture et suppression)
+    private FirestoreExportReport ship(List<FirestoreOutboxEntry> entries) {
+        Map<String, Set<String>> fieldsById = new LinkedHashMap<>();
+        Set<String> deletions = new LinkedHashSet<>();
+        for (FirestoreOutboxEntry e : entries) {
+            if (e.isSupprime()) {
+                fieldsById.remove(e.getIdSignalement());
+                deletions.add(e.getIdSignalement());
+            } else {
+                deletions.remove(e.getIdSignalement());
+                fieldsById.computeIfAbsent(e.getIdSignalement(), k -> new LinkedHashSet<>())
+                        .addAll(List.of(e.getChamps().split(",")));
+            }
+        }
+
+        // Valeurs actuelles lues en une requête ; un signalement supprimé depuis sera
+        // traité par l'entrée de suppression qui suit
+        Map<String, Map<String, Object>> documents = new LinkedHashMap<>();
+        Map<String, Signalement> current = new HashMap<>();
+        for (Signalement s : signalementRepository.findAllById(fieldsById.keySet())) {
+            current.put(s.getIdSignalement(), s);
+        }
+        fieldsById.forEach((id, fields) -> {
+            Signalement s = current.get(id);
+            if (s == null) {
+                return;
+            }
+            Map<String, Object> full = SignalementFirestoreMapping.toDocument(s);
+            if (fields.contains(SignalementFirestoreMapping.ALL_FIELDS)) {
+                documents.put(id, full);
+            } else {
+                Map<String, Object> partial = new HashMap<>();
+                partial.put("idSignalement", id);
+                for (String field : fields) {
+                    partial.put(field, full.get(field));
+                }
+                documents.put(id, partial);
+            }
+        });
+        if (documents.isEmpty() && deletions.isEmpty()) {
+            return new FirestoreExportReport(0, 0, 0, List.of());
+        }
+        return fireStoreService.writeSignalements(documents, deletions);
+    }
+}
@@ -0,0 +1,63 @@
+package com.cloud.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Découpage de texte français pour la recherche : minuscules, suppression des
+ * accents, mots vides retirés et racinisation légère (pluriels, féminins).
+ * Le même traitement est appliqué aux documents et aux requêtes.
+ */
+final class FrenchTextAnalyzer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "au", "aux", "avec", "ce", "ces", "cet", "cette", "d", "dans", "de", "des", "du", "elle",
+            "en", "est", "et", "il", "ils", "j", "je", "l", "la", "le", "les", "leur", "lui", "m", "ma",
+            "mais", "me", "mes", "n", "ne", "nous", "on", "ou", "par", "pas", "pour", "qu", "que", "qui",
+            "s", "sa", "se", "ses", "son", "sur", "t", "ta", "te", "tes", "un", "une", "vers", "vous", "y");
+
+    private FrenchTextAnalyzer() {
+    }
+
+    static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text.toLowerCase(), Normalizer.Form.NFD))
+                .replaceAll("");
+        for (String token : SEPARATORS.split(folded)) {
+            if (token.isEmpty() || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            terms.add(stem(token));
+        }
+        return terms;
+    }
+
+    /**
+     * Racinisation légère : assez pour rapprocher "routes"/"route", "nids"/"nid",
+     * "degradee"/"degrade", sans les erreurs d'un stemmer agressif.
+     */
+    static String stem(String word) {
+        String w = word;
+        if (w.length() > 5 && w.endsWith("aux")) {
+            w = w.substring(0, w.length() - 3) + "al"; // canaux -> canal
+        } else if (w.length() > 3 && (w.endsWith("s") || w.endsWith("x"))) {
+            w = w.substring(0, w.length() - 1);
+        }
+        if (w.length() > 4 && w.endsWith("e")) {
+            w = w.substring(0, w.length() - 1); // dégradée -> degrad, route -> rout
+        }
+        if (w.length() > 4 && w.endsWith("e")) {
+            w = w.substring(0, w.length() - 1);
+        }
+        return w;
+    }
+}
@@ -0,0 +1,133 @@
+package com.cloud.service;
+
+import com.cloud.repository.UserRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Tableau de bord manager en un seul appel : résumé, délais de traitement, comptes bloqués
+ * et liste des signalements, calculés en parallèle sur un pool borné. Une section trop lente
+ * ou en erreur est remplacée par null et listée dans "sectionsIndisponibles" au lieu de faire
+ * échouer la page.
+ */
+@Service
+public class ManagerDashboardService {
+
+    private static final Logger log = LoggerFactory.getLogger(ManagerDashboardService.class);
+
+    private static final int THREADS = 4;
+    // Au-delà, les sections sont refusées (dégradées) plutôt que mises en attente sans fin
+    private static final int QUEUE_CAPACITY = 64;
+
+    private final SignalementService signalementService;
+    private final SignalementStats signalementStats;
+    private final SignalementDataVersion dataVersion;
+    private final UserRepository userRepository;
+    private final long sectionTimeoutMs;
+
+    private final ThreadPoolExecutor executor;
+    private final TransactionTemplate sectionTransaction;
+
+    public ManagerDashboardService(SignalementService signalementService, SignalementStats signalementStats,
+                                   SignalementDataVersion dataVersion, UserRepository userRepository,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${manager.dashboard.section-timeout-ms:2000}") long sectionTimeoutMs) {
+        this.signalementService = signalementService;
+        this.signalementStats = signalementStats;
+        this.dataVersion = dataVersion;
+        this.userRepository = userRepository;
+        this.sectionTimeoutMs = sectionTimeoutMs;
+        this.sectionTransaction = new TransactionTemplate(transactionManager);
+        this.sectionTransaction.setReadOnly(true);
+        this.sectionTransaction.setTimeout((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(sectionTimeoutMs + 999)));
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(THREADS, THREADS, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "dashboard-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Les sections sont lues indépendamment (agrégats en mémoire, liste en cache, base) : ce
+     * n'est pas un instantané. "coherent" indique seulement qu'aucune écriture de signalement
+     * n'a été signalée pendant le calcul et que toutes les sections sont présentes.
+     */
+    public Map<String, Object> getDashboard() {
+        long version = dataVersion.getVersion();
+
+        Map<String, Future<Object>> sections = new LinkedHashMap<>();
+        sections.put("stats", submit(signalementStats::getResume));
+        sections.put("traitement", submit(signalementStats::getTraitement));
+        sections.put("lockedUsers", submit(userRepository::findByLockedTrue));
+        sections.put("signalements", submit(signalementService::getAllSignalementViews));
+        // Les sections partent ensemble : même échéance pour toutes
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sectionTimeoutMs);
+
+        Map<String, Object> dashboard = new LinkedHashMap<>();
+        List<String> unavailable = new ArrayList<>();
+        boolean cancelled = false;
+        for (Map.Entry<String, Future<Object>> e : sections.entrySet()) {
+            try {
+                dashboard.put(e.getKey(), e.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+                continue;
+            } catch (TimeoutException ex) {
+                // Interrompt la section (ou la retire de la file) : elle ne garde pas un thread du pool
+                e.getValue().cancel(true);
+                cancelled = true;
+                log.warn("Tableau de bord : section {} abandonnée après {} ms", e.getKey(), sectionTimeoutMs);
+            } catch (ExecutionException ex) {
+                log.warn("Tableau de bord : section {} en erreur", e.getKey(), ex.getCause());
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                e.getValue().cancel(true);
+                cancelled = true;
+            }
+            dashboard.put(e.getKey(), null);
+            unavailable.add(e.getKey());
+        }
+        if (cancelled) {
+            executor.purge();
+        }
+        dashboard.put("sectionsIndisponibles", unavailable);
+        dashboard.put("version", version);
+        dashboard.put("coherent", unavailable.isEmpty() && version == dataVersion.getVersion());
+        return dashboard;
+    }
+
+    private Future<Object> submit(Supplier<?> section) {
+        try {
+            // Délai de requête : une section en base abandonnée est aussi annulée côté PostgreSQL
+            return executor.submit(() -> sectionTransaction.execute(status -> section.get()));
+        } catch (RejectedExecutionException e) {
+            // Pool saturé : la section est dégradée
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
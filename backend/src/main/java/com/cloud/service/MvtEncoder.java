@@ -0,0 +1,148 @@
+package com.cloud.service;
+
+import com.cloud.dto.SignalementMarker;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encodeur minimal Mapbox Vector Tile (spec 2.1) pour une couche de points.
+ * Écrit directement le protobuf, sans dépendance : seuls les champs utilisés
+ * par les signalements (POINT, attributs chaîne / entier) sont gérés.
+ */
+final class MvtEncoder {
+
+    static final int EXTENT = 4096;
+
+    // Numéros de champs du schéma vector_tile.proto
+    private static final int TILE_LAYERS = 3;
+    private static final int LAYER_NAME = 1;
+    private static final int LAYER_FEATURES = 2;
+    private static final int LAYER_KEYS = 3;
+    private static final int LAYER_VALUES = 4;
+    private static final int LAYER_EXTENT = 5;
+    private static final int LAYER_VERSION = 15;
+    private static final int FEATURE_TAGS = 2;
+    private static final int FEATURE_TYPE = 3;
+    private static final int FEATURE_GEOMETRY = 4;
+    private static final int VALUE_STRING = 1;
+    private static final int VALUE_INT = 4;
+    private static final int GEOM_POINT = 1;
+    private static final int CMD_MOVE_TO_ONE = (1 & 0x7) | (1 << 3);
+
+    private static final int WIRE_VARINT = 0;
+    private static final int WIRE_LENGTH_DELIMITED = 2;
+
+    private MvtEncoder() {
+    }
+
+    /**
+     * @param markers signalements à encoder
+     * @param z       zoom de la tuile
+     * @param x       colonne de la tuile
+     * @param y       ligne de la tuile
+     */
+    static byte[] encode(String layerName, List<SignalementMarker> markers, int z, int x, int y) {
+        Map<String, Integer> keys = new LinkedHashMap<>();
+        Map<Object, Integer> values = new LinkedHashMap<>();
+        List<byte[]> features = new ArrayList<>(markers.size());
+        double scale = (double) (1L << z);
+
+        for (SignalementMarker m : markers) {
+            ProtoWriter feature = new ProtoWriter();
+
+            List<Integer> tags = new ArrayList<>(8);
+            addTag(tags, keys, values, "id", m.getIdSignalement());
+            addTag(tags, keys, values, "statut", m.getStatut());
+            addTag(tags, keys, values, "niveau", m.getNiveau() != null ? Long.valueOf(m.getNiveau()) : null);
+            addTag(tags, keys, values, "avancement", (long) m.getAvancement());
+            feature.packedVarints(FEATURE_TAGS, tags.stream().mapToLong(Integer::longValue).toArray());
+            feature.varintField(FEATURE_TYPE, GEOM_POINT);
+
+            long px = Math.round((SignalementClusterIndex.mercatorX(m.getLongitude()) * scale - x) * EXTENT);
+            long py = Math.round((SignalementClusterIndex.mercatorY(m.getLatitude()) * scale - y) * EXTENT);
+            feature.packedVarints(FEATURE_GEOMETRY, new long[]{CMD_MOVE_TO_ONE, zigZag(px), zigZag(py)});
+            features.add(feature.toByteArray());
+        }
+
+        ProtoWriter layer = new ProtoWriter();
+        layer.varintField(LAYER_VERSION, 2);
+        layer.stringField(LAYER_NAME, layerName);
+        for (byte[] f : features) {
+            layer.bytesField(LAYER_FEATURES, f);
+        }
+        for (String k : keys.keySet()) {
+            layer.stringField(LAYER_KEYS, k);
+        }
+        for (Object v : values.keySet()) {
+            ProtoWriter value = new ProtoWriter();
+            if (v instanceof Long) {
+                value.varintField(VALUE_INT, (Long) v);
+            } else {
+                value.stringField(VALUE_STRING, (String) v);
+            }
+            layer.bytesField(LAYER_VALUES, value.toByteArray());
+        }
+        layer.varintField(LAYER_EXTENT, EXTENT);
+
+        ProtoWriter tile = new ProtoWriter();
+        tile.bytesField(TILE_LAYERS, layer.toByteArray());
+        return tile.toByteArray();
+    }
+
+    private static void addTag(List<Integer> tags, Map<String, Integer> keys, Map<Object, Integer> values,
+                               String key, Object value) {
+        if (value == null) {
+            return;
+        }
+        tags.add(keys.computeIfAbsent(key, k -> keys.size()));
+        tags.add(values.computeIfAbsent(value, v -> values.size()));
+    }
+
+    private static long zigZag(long n) {
+        return (n << 1) ^ (n >> 63);
+    }
+
+    private static final class ProtoWriter {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        void varintField(int field, long value) {
+            varint(((long) field << 3) | WIRE_VARINT);
+            varint(value);
+        }
+
+        void stringField(int field, String value) {
+            bytesField(field, value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        void bytesField(int field, byte[] value) {
+            varint(((long) field << 3) | WIRE_LENGTH_DELIMITED);
+            varint(value.length);
+            out.write(value, 0, value.length);
+        }
+
+        void packedVarints(int field, long[] values) {
+            ProtoWriter packed = new ProtoWriter();
+            for (long v : values) {
+                packed.varint(v);
+            }
+            bytesField(field, packed.toByteArray());
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
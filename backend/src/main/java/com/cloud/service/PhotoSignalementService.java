@@ -1,7 +1,13 @@
 package com.cloud.service;
 
+import com.cloud.config.CacheConfig;
+import com.cloud.dto.PhotoView;
 import com.cloud.model.PhotoSignalement;
 import com.cloud.repository.PhotoSignalementRepository;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -19,12 +25,14 @@ import java.util.UUID;
 public class PhotoSignalementService {
 
     private final PhotoSignalementRepository photoRepository;
+    private final CacheManager cacheManager;
     
     // Répertoire où les photos seront stockées
     private static final String UPLOAD_DIR = "uploads/photos/";
 
-    public PhotoSignalementService(PhotoSignalementRepository photoRepository) {
+    public PhotoSignalementService(PhotoSignalementRepository photoRepository, CacheManager cacheManager) {
         this.photoRepository = photoRepository;
+        this.cacheManager = cacheManager;
         
         // Créer le répertoire s'il n'existe pas
         try {
@@ -35,16 +43,18 @@ public class PhotoSignalementService {
     }
 
     /**
-     * Récupère toutes les photos d'un signalement
+     * Récupère toutes les photos d'un signalement (liste et éléments immuables : partagés via le cache)
      */
-    public List<PhotoSignalement> getPhotosBySignalement(String idSignalement) {
-        return photoRepository.findByIdSignalement(idSignalement);
+    @Cacheable(cacheNames = CacheConfig.PHOTOS, key = "#idSignalement")
+    public List<PhotoView> getPhotosBySignalement(String idSignalement) {
+        return List.copyOf(photoRepository.findViewsByIdSignalement(idSignalement));
     }
 
     /**
      * Ajoute une photo pour un signalement (upload fichier)
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PHOTOS, key = "#idSignalement")
     public PhotoSignalement addPhoto(String idSignalement, MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Le fichier est vide");
@@ -73,6 +83,7 @@ public class PhotoSignalementService {
      * Ajoute une photo avec URL directe (pour import Firebase)
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PHOTOS, key = "#idSignalement")
     public PhotoSignalement addPhotoByUrl(String idSignalement, String urlPhoto) {
         PhotoSignalement photo = new PhotoSignalement();
         photo.setIdSignalement(idSignalement);
@@ -101,12 +112,18 @@ public class PhotoSignalementService {
         }
         
         photoRepository.deleteById(idPhoto);
+        // Le signalement n'est connu qu'après lecture de la photo : éviction manuelle
+        Cache photos = cacheManager.getCache(CacheConfig.PHOTOS);
+        if (photos != null) {
+            photos.evict(photo.getIdSignalement());
+        }
     }
 
     /**
      * Supprime toutes les photos d'un signalement
      */
     @Transactional
+    @CacheEvict(cacheNames = CacheConfig.PHOTOS, key = "#idSignalement")
     public void deleteAllPhotosBySignalement(String idSignalement) {
         List<PhotoSignalement> photos = photoRepository.findByIdSignalement(idSignalement);
         
@@ -0,0 +1,235 @@
+package com.cloud.service;
+
+import com.cloud.dto.BoundingBox;
+import com.cloud.dto.SignalementCluster;
+import com.cloud.dto.SignalementMarker;
+import com.cloud.event.SignalementChangedEvent;
+import com.cloud.repository.SignalementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Regroupement des signalements par niveau de zoom (grille hiérarchique façon supercluster).
+ * Pour chaque zoom 0..MAX_ZOOM, l'espace Web Mercator est découpé en cellules d'environ
+ * CLUSTER_RADIUS_PX pixels ; chaque cellule garde ses agrégats (nombre, surface, budget,
+ * répartition des statuts). Un changement de signalement ne touche qu'une cellule par zoom.
+ */
+@Component
+public class SignalementClusterIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementClusterIndex.class);
+
+    public static final int MAX_ZOOM = 16;
+    private static final int TILE_SIZE_PX = 256;
+    private static final int CLUSTER_RADIUS_PX = 60;
+
+    private final SignalementRepository signalementRepository;
+    private final SignalementRowVersions rowVersions;
+
+    // cellules[zoom] : clé de cellule -> agrégats
+    private final List<Map<Long, Cell>> levels = new ArrayList<>();
+    private final Map<String, SignalementMarker> members = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SignalementVersionGate versions = new SignalementVersionGate();
+
+    public SignalementClusterIndex(SignalementRepository signalementRepository, SignalementRowVersions rowVersions) {
+        this.signalementRepository = signalementRepository;
+        this.rowVersions = rowVersions;
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Lecture sous le verrou d'écriture : un événement reçu pendant la lecture attend et n'est pas écrasé
+        lock.writeLock().lock();
+        List<SignalementMarker> all;
+        try {
+            SignalementRowVersions.Snapshot<SignalementMarker> snapshot = rowVersions.snapshot(signalementRepository::findAllMarkers);
+            all = snapshot.getRows();
+            versions.reset(snapshot.getVersion());
+            members.clear();
+            levels.forEach(Map::clear);
+            for (SignalementMarker m : all) {
+                apply(m);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Clusters construits pour {} signalements (zoom 0-{})", all.size(), MAX_ZOOM);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSignalementChanged(SignalementChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!versions.accept(event)) {
+                return;
+            }
+            if (event.isDeleted()) {
+                remove(event.getSignalement().getIdSignalement());
+            } else {
+                apply(SignalementMarker.from(event.getSignalement()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Appelé sous verrou d'écriture
+    private void apply(SignalementMarker marker) {
+        SignalementMarker previous = members.put(marker.getIdSignalement(), marker);
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            Map<Long, Cell> cells = levels.get(z);
+            if (previous != null) {
+                removeFromCell(cells, previous, z);
+            }
+            cells.computeIfAbsent(cellKey(marker.getLatitude(), marker.getLongitude(), z), k -> new Cell())
+                    .add(marker);
+        }
+    }
+
+    // Appelé sous verrou d'écriture
+    private void remove(String idSignalement) {
+        SignalementMarker previous = members.remove(idSignalement);
+        if (previous == null) {
+            return;
+        }
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            removeFromCell(levels.get(z), previous, z);
+        }
+    }
+
+    private static void removeFromCell(Map<Long, Cell> cells, SignalementMarker marker, int z) {
+        long key = cellKey(marker.getLatitude(), marker.getLongitude(), z);
+        Cell cell = cells.get(key);
+        if (cell != null && cell.remove(marker) == 0) {
+            cells.remove(key);
+        }
+    }
+
+    /**
+     * Clusters visibles dans bbox au zoom z (au-delà de MAX_ZOOM, on renvoie le niveau le plus fin).
+     */
+    public List<SignalementCluster> getClusters(int z, BoundingBox bbox) {
+        int zoom = Math.max(0, Math.min(z, MAX_ZOOM));
+        double cellsPerSide = cellsPerSide(zoom);
+        int minX = (int) Math.floor(mercatorX(bbox.getMinLng()) * cellsPerSide);
+        int maxX = (int) Math.floor(mercatorX(bbox.getMaxLng()) * cellsPerSide);
+        // Y Mercator croît vers le sud
+        int minY = (int) Math.floor(mercatorY(bbox.getMaxLat()) * cellsPerSide);
+        int maxY = (int) Math.floor(mercatorY(bbox.getMinLat()) * cellsPerSide);
+
+        List<SignalementCluster> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, Cell> cells = levels.get(zoom);
+            long rangeSize = (long) (maxX - minX + 1) * (maxY - minY + 1);
+            if (rangeSize > cells.size()) {
+                for (Map.Entry<Long, Cell> e : cells.entrySet()) {
+                    int x = (int) (e.getKey() >> 32);
+                    int y = (int) (long) e.getKey();
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                        result.add(e.getValue().toCluster());
+                    }
+                }
+            } else {
+                for (int x = minX; x <= maxX; x++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        Cell cell = cells.get(key(x, y));
+                        if (cell != null) {
+                            result.add(cell.toCluster());
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private static double cellsPerSide(int zoom) {
+        return (double) TILE_SIZE_PX * (1L << zoom) / CLUSTER_RADIUS_PX;
+    }
+
+    private static long cellKey(double lat, double lng, int zoom) {
+        double n = cellsPerSide(zoom);
+        return key((int) Math.floor(mercatorX(lng) * n), (int) Math.floor(mercatorY(lat) * n));
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    // Projection Web Mercator normalisée dans [0, 1]
+    static double mercatorX(double lng) {
+        return (lng + 180d) / 360d;
+    }
+
+    static double mercatorY(double lat) {
+        double sin = Math.sin(Math.toRadians(lat));
+        double y = 0.5 - Math.log((1 + sin) / (1 - sin)) / (4 * Math.PI);
+        return Math.min(1, Math.max(0, y));
+    }
+
+    private static String statutKey(SignalementMarker m) {
+        return m.getStatut() != null ? m.getStatut().toLowerCase() : "inconnu";
+    }
+
+    /**
+     * Agrégats d'une cellule, modifiés uniquement sous le verrou d'écriture
+     */
+    private static final class Cell {
+        private int count;
+        private double sumLat;
+        private double sumLng;
+        private double surface;
+        private double budget;
+        private final Map<String, Integer> statuts = new HashMap<>();
+
+        void add(SignalementMarker m) {
+            count++;
+            sumLat += m.getLatitude();
+            sumLng += m.getLongitude();
+            surface += m.getSurfaceM2() != null ? m.getSurfaceM2() : 0;
+            budget += m.getBudget() != null ? m.getBudget() : 0;
+            statuts.merge(statutKey(m), 1, Integer::sum);
+        }
+
+        int remove(SignalementMarker m) {
+            count--;
+            sumLat -= m.getLatitude();
+            sumLng -= m.getLongitude();
+            surface -= m.getSurfaceM2() != null ? m.getSurfaceM2() : 0;
+            budget -= m.getBudget() != null ? m.getBudget() : 0;
+            statuts.computeIfPresent(statutKey(m), (k, v) -> v > 1 ? v - 1 : null);
+            return count;
+        }
+
+        SignalementCluster toCluster() {
+            String dominant = null;
+            int best = -1;
+            for (Map.Entry<String, Integer> e : statuts.entrySet()) {
+                if (e.getValue() > best) {
+                    best = e.getValue();
+                    dominant = e.getKey();
+                }
+            }
+            return new SignalementCluster(sumLat / count, sumLng / count, count, surface, budget,
+                    dominant, new HashMap<>(statuts));
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package com.cloud.service;
+
+import com.cloud.dto.SignalementMarker;
+import com.cloud.event.SignalementChangedEvent;
+import com.cloud.repository.SignalementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Copie en colonnes des signalements pour l'analyse ad hoc (group by statut, entreprise,
+ * niveau, mois ; sommes de surface et budget). Chaque colonne est un tableau primitif ;
+ * les dimensions sont encodées par dictionnaire (un int par ligne au lieu d'objets).
+ * Tenue à jour par les événements de changement ; les agrégations parcourent les
+ * tableaux en parallèle (fork-join) sans toucher à la base.
+ */
+@Component
+public class SignalementColumnStore {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementColumnStore.class);
+
+    public enum Dimension { STATUT, ENTREPRISE, NIVEAU, MOIS }
+
+    private static final Dimension[] DIMENSIONS = Dimension.values();
+    private static final int INITIAL_CAPACITY = 1024;
+    // Lignes par tâche fork-join en dessous desquelles on agrège séquentiellement
+    private static final int SCAN_CHUNK = 16_384;
+
+    private final SignalementRepository signalementRepository;
+    private final SignalementRowVersions rowVersions;
+
+    // Code 0 = valeur absente (null) dans chaque dictionnaire
+    private final List<Dictionary> dictionaries = new ArrayList<>();
+    private final Map<String, Integer> rowById = new HashMap<>();
+    private final Deque<Integer> freeRows = new ArrayDeque<>();
+    private int rowCount;
+    private boolean[] live = new boolean[INITIAL_CAPACITY];
+    private int[][] codes = new int[DIMENSIONS.length][INITIAL_CAPACITY];
+    private double[] surface = new double[INITIAL_CAPACITY];
+    private double[] budget = new double[INITIAL_CAPACITY];
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SignalementVersionGate versions = new SignalementVersionGate();
+
+    public SignalementColumnStore(SignalementRepository signalementRepository, SignalementRowVersions rowVersions) {
+        this.signalementRepository = signalementRepository;
+        this.rowVersions = rowVersions;
+        for (int d = 0; d < DIMENSIONS.length; d++) {
+            dictionaries.add(new Dictionary());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Lecture sous le verrou d'écriture : un événement reçu pendant la lecture attend et n'est pas écrasé
+        lock.writeLock().lock();
+        List<SignalementMarker> all;
+        try {
+            SignalementRowVersions.Snapshot<SignalementMarker> snapshot = rowVersions.snapshot(signalementRepository::findAllMarkers);
+            all = snapshot.getRows();
+            versions.reset(snapshot.getVersion());
+            dictionaries.forEach(Dictionary::clear);
+            rowById.clear();
+            freeRows.clear();
+            rowCount = 0;
+            int capacity = Math.max(INITIAL_CAPACITY, Integer.highestOneBit(Math.max(1, all.size())) << 1);
+            live = new boolean[capacity];
+            codes = new int[DIMENSIONS.length][capacity];
+            surface = new double[capacity];
+            budget = new double[capacity];
+            for (SignalementMarker m : all) {
+                upsert(m);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Vue en colonnes construite : {} signalements", all.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSignalementChanged(SignalementChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!versions.accept(event)) {
+                return;
+            }
+            if (event.isDeleted()) {
+                Integer row = rowById.remove(event.getSignalement().getIdSignalement());
+                if (row != null) {
+                    live[row] = false;
+                    freeRows.push(row);
+                }
+            } else {
+                upsert(SignalementMarker.from(event.getSignalement()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Appelé sous verrou d'écriture
+    private void upsert(SignalementMarker m) {
+        Integer row = rowById.get(m.getIdSignalement());
+        if (row == null) {
+            row = freeRows.isEmpty() ? rowCount++ : freeRows.pop();
+            ensureCapacity(row + 1);
+            rowById.put(m.getIdSignalement(), row);
+        }
+        live[row] = true;
+        codes[Dimension.STATUT.ordinal()][row] = dictionary(Dimension.STATUT).encode(m.getStatut());
+        codes[Dimension.ENTREPRISE.ordinal()][row] = dictionary(Dimension.ENTREPRISE).encode(m.getEntreprise());
+        codes[Dimension.NIVEAU.ordinal()][row] = dictionary(Dimension.NIVEAU).encode(m.getNiveau());
+        codes[Dimension.MOIS.ordinal()][row] = dictionary(Dimension.MOIS).encode(month(m.getDateSignalement()));
+        surface[row] = m.getSurfaceM2() != null ? m.getSurfaceM2() : 0;
+        budget[row] = m.getBudget() != null ? m.getBudget() : 0;
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= live.length) {
+            return;
+        }
+        int capacity = live.length * 2;
+        live = Arrays.copyOf(live, capacity);
+        for (int d = 0; d < codes.length; d++) {
+            codes[d] = Arrays.copyOf(codes[d], capacity);
+        }
+        surface = Arrays.copyOf(surface, capacity);
+        budget = Arrays.copyOf(budget, capacity);
+    }
+
+    private static YearMonth month(Timestamp date) {
+        return date != null ? YearMonth.from(date.toLocalDateTime()) : null;
+    }
+
+    private Dictionary dictionary(Dimension dimension) {
+        return dictionaries.get(dimension.ordinal());
+    }
+
+    /**
+     * "statut,entreprise,niveau,mois" -> dimensions ; IllegalArgumentException si inconnue
+     */
+    public static Set<Dimension> parseDimensions(String csv) {
+        EnumSet<Dimension> dimensions = EnumSet.noneOf(Dimension.class);
+        if (csv == null || csv.isBlank()) {
+            return dimensions;
+        }
+        for (String name : csv.split(",")) {
+            String trimmed = name.trim();
+            try {
+                dimensions.add(Dimension.valueOf(trimmed.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Dimension inconnue : " + trimmed
+                        + " (statut, entreprise, niveau ou mois)");
+            }
+        }
+        return dimensions;
+    }
+
+    /**
+     * Agrège (nombre, surface, budget) par combinaison des dimensions demandées.
+     *
+     * @param groupBy dimensions de regroupement (vide : un seul total)
+     * @param filters valeur imposée par dimension (String pour statut/entreprise,
+     *                Integer pour niveau, YearMonth pour mois) ; une valeur inconnue ne renvoie rien
+     * @param from    premier mois inclus, null pour sans borne
+     * @param to      dernier mois inclus, null pour sans borne
+     */
+    public List<Map<String, Object>> aggregate(Set<Dimension> groupBy, Map<Dimension, Object> filters,
+                                               YearMonth from, YearMonth to) {
+        lock.readLock().lock();
+        try {
+            // Filtres traduits en codes une fois pour toutes : le parcours ne compare que des int
+            int[] required = new int[DIMENSIONS.length];
+            Arrays.fill(required, -1);
+            for (Map.Entry<Dimension, Object> f : filters.entrySet()) {
+                int code = dictionary(f.getKey()).find(f.getValue());
+                if (code < 0) {
+                    return new ArrayList<>();
+                }
+                required[f.getKey().ordinal()] = code;
+            }
+            boolean[] monthAllowed = null;
+            if (from != null || to != null) {
+                Dictionary months = dictionary(Dimension.MOIS);
+                monthAllowed = new boolean[months.size()];
+                for (int code = 1; code < months.size(); code++) {
+                    YearMonth m = (YearMonth) months.decode(code);
+                    monthAllowed[code] = (from == null || !m.isBefore(from)) && (to == null || !m.isAfter(to));
+                }
+            }
+            // Clé de groupe en base mixte : code * produit des tailles des dimensions précédentes
+            // (0 = dimension non regroupée), le nombre de valeurs d'une dimension n'est pas borné
+            long[] strides = new long[DIMENSIONS.length];
+            long stride = 1;
+            for (Dimension d : DIMENSIONS) {
+                if (groupBy.contains(d)) {
+                    strides[d.ordinal()] = stride;
+                    try {
+                        stride = Math.multiplyExact(stride, dictionary(d).size());
+                    } catch (ArithmeticException e) {
+                        throw new IllegalArgumentException("Trop de combinaisons de valeurs pour ce regroupement");
+                    }
+                }
+            }
+
+            Scan scan = new Scan(0, rowCount, required, monthAllowed, strides);
+            Map<Long, double[]> totals = ForkJoinPool.commonPool().invoke(scan);
+            return toRows(totals, groupBy, strides);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Appelé sous verrou de lecture ; résultats triés par clé (donc par code de dictionnaire)
+    private List<Map<String, Object>> toRows(Map<Long, double[]> totals, Set<Dimension> groupBy, long[] strides) {
+        EnumSet<Dimension> ordered = EnumSet.noneOf(Dimension.class);
+        ordered.addAll(groupBy);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Map.Entry<Long, double[]> e : new TreeMap<>(totals).entrySet()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (Dimension d : ordered) {
+                int code = (int) (e.getKey() / strides[d.ordinal()] % dictionary(d).size());
+                Object value = dictionary(d).decode(code);
+                row.put(d.name().toLowerCase(), value instanceof YearMonth ? value.toString() : value);
+            }
+            row.put("count", (long) e.getValue()[0]);
+            row.put("surfaceM2", e.getValue()[1]);
+            row.put("budget", e.getValue()[2]);
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Parcours d'une plage de lignes : clé de groupe -> {nombre, surface, budget}
+     */
+    private final class Scan extends RecursiveTask<Map<Long, double[]>> {
+        private final int from;
+        private final int to;
+        private final int[] required;
+        private final boolean[] monthAllowed;
+        private final long[] strides;
+
+        Scan(int from, int to, int[] required, boolean[] monthAllowed, long[] strides) {
+            this.from = from;
+            this.to = to;
+            this.required = required;
+            this.monthAllowed = monthAllowed;
+            this.strides = strides;
+        }
+
+        @Override
+        protected Map<Long, double[]> compute() {
+            if (to - from > SCAN_CHUNK) {
+                int mid = (from + to) >>> 1;
+                Scan left = new Scan(from, mid, required, monthAllowed, strides);
+                left.fork();
+                Map<Long, double[]> right = new Scan(mid, to, required, monthAllowed, strides).compute();
+                Map<Long, double[]> result = left.join();
+                right.forEach((key, v) -> result.merge(key, v, (a, b) -> {
+                    a[0] += b[0];
+                    a[1] += b[1];
+                    a[2] += b[2];
+                    return a;
+                }));
+                return result;
+            }
+            Map<Long, double[]> result = new HashMap<>();
+            rows:
+            for (int row = from; row < to; row++) {
+                if (!live[row]) {
+                    continue;
+                }
+                long key = 0;
+                for (int d = 0; d < DIMENSIONS.length; d++) {
+                    int code = codes[d][row];
+                    if (required[d] >= 0 && code != required[d]) {
+                        continue rows;
+                    }
+                    key += code * strides[d];
+                }
+                if (monthAllowed != null) {
+                    int month = codes[Dimension.MOIS.ordinal()][row];
+                    if (month == 0 || month >= monthAllowed.length || !monthAllowed[month]) {
+                        continue;
+                    }
+                }
+                double[] acc = result.computeIfAbsent(key, k -> new double[3]);
+                acc[0]++;
+                acc[1] += surface[row];
+                acc[2] += budget[row];
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Dictionnaire valeur <-> code ; le code 0 représente null
+     */
+    private static final class Dictionary {
+        private final Map<Object, Integer> codes = new HashMap<>();
+        private final List<Object> values = new ArrayList<>();
+
+        Dictionary() {
+            clear();
+        }
+
+        void clear() {
+            codes.clear();
+            values.clear();
+            values.add(null);
+        }
+
+        int encode(Object value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codes.put(value, code);
+            }
+            return code;
+        }
+
+        int find(Object value) {
+            if (value == null) {
+                return 0;
+            }
+            Integer code = codes.get(value);
+            return code != null ? code : -1;
+        }
+
+        Object decode(int code) {
+            return values.get(code);
+        }
+
+        int size() {
+            return values.size();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.cloud.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Position dans l'ordre (dateSignalement DESC, idSignalement DESC).
+ * Encodée en base64 url-safe pour rester opaque côté client.
+ */
+public final class SignalementCursor {
+    private final Timestamp dateSignalement;
+    private final String idSignalement;
+
+    public SignalementCursor(Timestamp dateSignalement, String idSignalement) {
+        this.dateSignalement = dateSignalement;
+        this.idSignalement = idSignalement;
+    }
+
+    public Timestamp getDateSignalement() { return dateSignalement; }
+    public String getIdSignalement() { return idSignalement; }
+
+    public String encode() {
+        String raw = (dateSignalement != null ? String.valueOf(dateSignalement.getTime()) : "") + "|" + idSignalement;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException si le curseur n'a pas été produit par encode()
+     */
+    public static SignalementCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int sep = raw.indexOf('|');
+            if (sep < 0 || sep == raw.length() - 1) {
+                throw new IllegalArgumentException("Curseur invalide");
+            }
+            String date = raw.substring(0, sep);
+            return new SignalementCursor(
+                    date.isEmpty() ? null : new Timestamp(Long.parseLong(date)),
+                    raw.substring(sep + 1));
+        } catch (IllegalArgumentException e) {
+            // NumberFormatException est aussi une IllegalArgumentException
+            throw new IllegalArgumentException("Curseur invalide", e);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.cloud.service;
+
+import com.cloud.event.SignalementChangedEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Version des données "signalement", incrémentée à chaque écriture.
+ * Sert à produire ETag / Last-Modified : une requête conditionnelle dont
+ * l'ETag correspond est servie en 304 sans interroger la base. Le 304 ne se décide
+ * que sur l'ETag : Last-Modified, à la seconde, ne distingue pas deux écritures de la
+ * même seconde et n'est envoyé qu'à titre indicatif.
+ */
+@Component
+public class SignalementDataVersion {
+
+    // Distingue deux démarrages successifs (la version repart de 0)
+    private final String bootId = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicReference<State> state = new AtomicReference<>(new State(0, now()));
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSignalementChanged(SignalementChangedEvent event) {
+        bump();
+    }
+
+    public void bump() {
+        state.updateAndGet(s -> new State(s.version + 1, Math.max(s.lastModified, now())));
+    }
+
+    public long getVersion() {
+        return state.get().version;
+    }
+
+    /**
+     * ETag fort, identique tant qu'aucune écriture n'a eu lieu
+     */
+    public String getETag() {
+        return "\"" + bootId + "-" + state.get().version + "\"";
+    }
+
+    public long getLastModified() {
+        return state.get().lastModified;
+    }
+
+    // Last-Modified n'a qu'une précision à la seconde
+    private static long now() {
+        return System.currentTimeMillis() / 1000 * 1000;
+    }
+
+    private static final class State {
+        private final long version;
+        private final long lastModified;
+
+        private State(long version, long lastModified) {
+            this.version = version;
+            this.lastModified = lastModified;
+        }
+    }
+}
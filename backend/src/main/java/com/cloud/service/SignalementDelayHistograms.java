@@ -0,0 +1,175 @@
+package com.cloud.service;
+
+import com.cloud.dto.SignalementView;
+import com.cloud.event.SignalementChangedEvent;
+import com.cloud.model.Signalement;
+import com.cloud.repository.SignalementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Distribution des délais de traitement (nouveau -> en cours -> terminé) par entreprise
+ * et niveau. Un histogramme par transition et par couple (entreprise, niveau) ; une
+ * requête fusionne les couples qui correspondent au filtre. Mise à jour incrémentale
+ * sur chaque écriture, recalcul complet au démarrage.
+ */
+@Component
+public class SignalementDelayHistograms {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementDelayHistograms.class);
+
+    private enum Transition { NOUVEAU_EN_COURS, EN_COURS_TERMINE, NOUVEAU_TERMINE }
+
+    private static final Transition[] TRANSITIONS = Transition.values();
+
+    private final SignalementRepository signalementRepository;
+    private final SignalementRowVersions rowVersions;
+
+    private final Map<Slice, DurationHistogram[]> histograms = new ConcurrentHashMap<>();
+    private final Map<String, Contribution> contributions = new ConcurrentHashMap<>();
+    private final SignalementVersionGate versions = new SignalementVersionGate();
+
+    public SignalementDelayHistograms(SignalementRepository signalementRepository, SignalementRowVersions rowVersions) {
+        this.signalementRepository = signalementRepository;
+        this.rowVersions = rowVersions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        SignalementRowVersions.Snapshot<SignalementView> snapshot = rowVersions.snapshot(signalementRepository::findAllViews);
+        List<SignalementView> all = snapshot.getRows();
+        versions.reset(snapshot.getVersion());
+        histograms.clear();
+        contributions.clear();
+        for (SignalementView v : all) {
+            Contribution c = new Contribution(v.getEntreprise(), v.getNiveau(),
+                    v.getDateNouveau(), v.getDateEnCours(), v.getDateTermine());
+            contributions.put(v.getIdSignalement(), c);
+            apply(c, 1);
+        }
+        log.info("Histogrammes des délais construits sur {} signalements ({} tranches)", all.size(), histograms.size());
+    }
+
+    // synchronized : filtre des versions et application forment un tout, et la reconstruction
+    // (qui lit la table sous ce moniteur) ne peut pas écraser un événement
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSignalementChanged(SignalementChangedEvent event) {
+        if (!versions.accept(event)) {
+            return;
+        }
+        Signalement s = event.getSignalement();
+        if (event.isDeleted()) {
+            contributions.computeIfPresent(s.getIdSignalement(), (id, previous) -> {
+                apply(previous, -1);
+                return null;
+            });
+            return;
+        }
+        Contribution next = new Contribution(s.getEntreprise(), s.getNiveau(),
+                s.getDateNouveau(), s.getDateEnCours(), s.getDateTermine());
+        contributions.compute(s.getIdSignalement(), (id, previous) -> {
+            if (previous != null) {
+                apply(previous, -1);
+            }
+            apply(next, 1);
+            return next;
+        });
+    }
+
+    private void apply(Contribution c, int sign) {
+        DurationHistogram[] slice = histograms.computeIfAbsent(c.slice, k -> newSlice());
+        for (int t = 0; t < TRANSITIONS.length; t++) {
+            if (c.delays[t] >= 0) {
+                slice[t].record(c.delays[t], sign);
+            }
+        }
+    }
+
+    /**
+     * Percentiles (p50/p90/p99/max) et distribution de chaque transition, en jours
+     *
+     * @param entreprise null pour toutes
+     * @param niveau     null pour tous
+     */
+    public Map<String, Object> getDistributions(String entreprise, Integer niveau) {
+        long[][] merged = new long[TRANSITIONS.length][DurationHistogram.BUCKET_COUNT];
+        for (Map.Entry<Slice, DurationHistogram[]> e : histograms.entrySet()) {
+            Slice slice = e.getKey();
+            if ((entreprise == null || entreprise.equals(slice.entreprise))
+                    && (niveau == null || niveau.equals(slice.niveau))) {
+                for (int t = 0; t < TRANSITIONS.length; t++) {
+                    e.getValue()[t].mergeInto(merged[t]);
+                }
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("nouveauEnCours", DurationHistogram.summarize(merged[Transition.NOUVEAU_EN_COURS.ordinal()]));
+        result.put("enCoursTermine", DurationHistogram.summarize(merged[Transition.EN_COURS_TERMINE.ordinal()]));
+        result.put("nouveauTermine", DurationHistogram.summarize(merged[Transition.NOUVEAU_TERMINE.ordinal()]));
+        return result;
+    }
+
+    private static DurationHistogram[] newSlice() {
+        DurationHistogram[] slice = new DurationHistogram[TRANSITIONS.length];
+        for (int t = 0; t < slice.length; t++) {
+            slice[t] = new DurationHistogram();
+        }
+        return slice;
+    }
+
+    private static final class Slice {
+        final String entreprise;
+        final Integer niveau;
+
+        Slice(String entreprise, Integer niveau) {
+            this.entreprise = entreprise;
+            this.niveau = niveau;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Slice other
+                    && Objects.equals(entreprise, other.entreprise) && Objects.equals(niveau, other.niveau);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(entreprise, niveau);
+        }
+    }
+
+    /**
+     * Délais d'un signalement en secondes, indexés par Transition ; -1 si non mesurable
+     * (date manquante ou dates dans le désordre)
+     */
+    private static final class Contribution {
+        final Slice slice;
+        final long[] delays = new long[TRANSITIONS.length];
+
+        Contribution(String entreprise, Integer niveau, Timestamp dateNouveau, Timestamp dateEnCours,
+                     Timestamp dateTermine) {
+            this.slice = new Slice(entreprise, niveau);
+            delays[Transition.NOUVEAU_EN_COURS.ordinal()] = seconds(dateNouveau, dateEnCours);
+            delays[Transition.EN_COURS_TERMINE.ordinal()] = seconds(dateEnCours, dateTermine);
+            delays[Transition.NOUVEAU_TERMINE.ordinal()] = seconds(dateNouveau, dateTermine);
+        }
+
+        private static long seconds(Timestamp from, Timestamp to) {
+            if (from == null || to == null || to.before(from)) {
+                return -1;
+            }
+            return (to.getTime() - from.getTime()) / 1000;
+        }
+    }
+}
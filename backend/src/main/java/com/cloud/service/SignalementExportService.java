@@ -0,0 +1,118 @@
+package com.cloud.service;
+
+import com.cloud.model.Signalement;
+import com.cloud.repository.SignalementRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.OutputStream;
+import java.sql.Timestamp;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+/**
+ * Export complet des signalements en flux : les lignes sont lues par un curseur
+ * JDBC et écrites une par une, la mémoire reste constante quel que soit le volume.
+ */
+@Service
+public class SignalementExportService {
+
+    public enum Format { NDJSON, JSON }
+
+    private final SignalementRepository signalementRepository;
+    private final ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public SignalementExportService(SignalementRepository signalementRepository, ObjectMapper objectMapper) {
+        this.signalementRepository = signalementRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Écrit tous les signalements dans out. NDJSON : un objet par ligne ;
+     * JSON : un tableau unique écrit au fil de l'eau.
+     *
+     * @return nombre de signalements exportés
+     */
+    @Transactional(readOnly = true)
+    public long export(OutputStream out, Format format) {
+        long count = 0;
+        JsonGenerator gen = format == Format.NDJSON
+                ? objectMapper.writer().withRootValueSeparator("\n").createGenerator(out)
+                : objectMapper.createGenerator(out);
+        try (Stream<Signalement> rows = signalementRepository.streamAll()) {
+            if (format == Format.JSON) {
+                gen.writeStartArray();
+            }
+            Iterator<Signalement> it = rows.iterator();
+            while (it.hasNext()) {
+                writeSignalement(gen, it.next());
+                count++;
+                if (count % SignalementRepository.EXPORT_FETCH_SIZE == 0) {
+                    // Détacher le lot pour que le contexte de persistance ne grossisse pas
+                    entityManager.clear();
+                    gen.flush();
+                }
+            }
+            if (format == Format.JSON) {
+                gen.writeEndArray();
+            } else if (count > 0) {
+                gen.writeRaw('\n');
+            }
+        } finally {
+            gen.close();
+        }
+        return count;
+    }
+
+    private static void writeSignalement(JsonGenerator gen, Signalement s) {
+        gen.writeStartObject();
+        gen.writeStringProperty("idSignalement", s.getIdSignalement());
+        gen.writeStringProperty("titre", s.getTitre());
+        gen.writeStringProperty("description", s.getDescription());
+        gen.writeNumberProperty("latitude", s.getLatitude());
+        gen.writeNumberProperty("longitude", s.getLongitude());
+        writeTimestamp(gen, "dateSignalement", s.getDateSignalement());
+        gen.writeStringProperty("statut", s.getStatut());
+        writeNumber(gen, "surfaceM2", s.getSurfaceM2());
+        writeNumber(gen, "budget", s.getBudget());
+        gen.writeStringProperty("entreprise", s.getEntreprise());
+        if (s.getNiveau() != null) {
+            gen.writeNumberProperty("niveau", s.getNiveau());
+        } else {
+            gen.writeNullProperty("niveau");
+        }
+        writeTimestamp(gen, "dateNouveau", s.getDateNouveau());
+        writeTimestamp(gen, "dateEnCours", s.getDateEnCours());
+        writeTimestamp(gen, "dateTermine", s.getDateTermine());
+        gen.writeNumberProperty("avancement", s.getAvancement());
+        if (s.getUtilisateur() != null) {
+            gen.writeNumberProperty("idUser", s.getUtilisateur().getId());
+        } else {
+            gen.writeNullProperty("idUser");
+        }
+        gen.writeEndObject();
+    }
+
+    private static void writeNumber(JsonGenerator gen, String name, Double value) {
+        if (value != null) {
+            gen.writeNumberProperty(name, value);
+        } else {
+            gen.writeNullProperty(name);
+        }
+    }
+
+    private static void writeTimestamp(JsonGenerator gen, String name, Timestamp value) {
+        if (value != null) {
+            gen.writeStringProperty(name, value.toInstant().toString());
+        } else {
+            gen.writeNullProperty(name);
+        }
+    }
+}
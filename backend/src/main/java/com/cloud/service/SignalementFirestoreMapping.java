@@ -0,0 +1,162 @@
+package com.cloud.service;
+
+import com.cloud.model.Signalement;
+import com.cloud.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Correspondance entre un signalement SQL et son document dans la collection Firestore
+ * "signalements", partagée par l'export complet et l'export incrémental.
+ */
+final class SignalementFirestoreMapping {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementFirestoreMapping.class);
+
+    // Dans l'outbox : tous les champs du document
+    static final String ALL_FIELDS = "*";
+
+    // Champ du document -> affectation sur l'entité, construit une fois pour tous les imports
+    private static final Map<String, BiConsumer<Signalement, Object>> SETTERS = Map.of(
+            "titre", (s, v) -> s.setTitre(v.toString()),
+            "description", (s, v) -> s.setDescription(v.toString()),
+            "latitude", (s, v) -> s.setLatitude(((Number) v).doubleValue()),
+            "longitude", (s, v) -> s.setLongitude(((Number) v).doubleValue()),
+            "statut", (s, v) -> s.setStatut(v.toString()),
+            "surfaceM2", (s, v) -> s.setSurfaceM2(((Number) v).doubleValue()),
+            "budget", (s, v) -> s.setBudget(((Number) v).doubleValue()),
+            "entreprise", (s, v) -> s.setEntreprise(v.toString()),
+            "dateSignalement", (s, v) -> s.setDateSignalement(toTimestamp(v)),
+            // Utilisateur réduit à son id, résolu ensuite pour tout le lot
+            "id_user", SignalementFirestoreMapping::setUserId);
+
+    private SignalementFirestoreMapping() {
+    }
+
+    static Map<String, Object> toDocument(Signalement s) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("idSignalement", s.getIdSignalement());
+        data.put("titre", s.getTitre());
+        data.put("description", s.getDescription());
+        data.put("latitude", s.getLatitude());
+        data.put("longitude", s.getLongitude());
+        data.put("dateSignalement", s.getDateSignalement() != null ? s.getDateSignalement().toString() : null);
+        data.put("statut", s.getStatut());
+        data.put("surfaceM2", s.getSurfaceM2());
+        data.put("budget", s.getBudget());
+        data.put("entreprise", s.getEntreprise());
+        data.put("id_user", s.getUtilisateur() != null ? s.getUtilisateur().getId() : null);
+        // Ajouter les dates d'avancement
+        data.put("dateNouveau", s.getDateNouveau() != null ? s.getDateNouveau().toString() : null);
+        data.put("dateEnCours", s.getDateEnCours() != null ? s.getDateEnCours().toString() : null);
+        data.put("dateTermine", s.getDateTermine() != null ? s.getDateTermine().toString() : null);
+        data.put("avancement", s.getAvancement());
+        // Document écrit depuis SQL : rien à réimporter
+        data.put("importedToSQL", true);
+        return data;
+    }
+
+    /**
+     * Champs du document dont la valeur diffère entre deux états
+     */
+    static Set<String> changedFields(Map<String, Object> before, Map<String, Object> after) {
+        Set<String> changed = new LinkedHashSet<>();
+        for (Map.Entry<String, Object> e : after.entrySet()) {
+            if (!Objects.equals(e.getValue(), before.get(e.getKey()))) {
+                changed.add(e.getKey());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Champs du document qu'une mise à jour partielle (champs null ignorés) peut modifier,
+     * quand l'état précédent n'est pas chargé (lots UPSERT)
+     */
+    static Set<String> touchedFields(Signalement update) {
+        Set<String> touched = new LinkedHashSet<>();
+        if (update.getTitre() != null) touched.add("titre");
+        if (update.getDescription() != null) touched.add("description");
+        if (update.getLatitude() != 0d) touched.add("latitude");
+        if (update.getLongitude() != 0d) touched.add("longitude");
+        if (update.getDateSignalement() != null) touched.add("dateSignalement");
+        if (update.getStatut() != null) {
+            touched.add("statut");
+            touched.add("dateNouveau");
+            touched.add("dateEnCours");
+            touched.add("dateTermine");
+            touched.add("avancement");
+        }
+        if (update.getSurfaceM2() != null) touched.add("surfaceM2");
+        if (update.getBudget() != null) touched.add("budget");
+        if (update.getEntreprise() != null) touched.add("entreprise");
+        if (update.getUtilisateur() != null) touched.add("id_user");
+        return touched;
+    }
+
+    /**
+     * Champs calculés par le serveur (dates d'avancement) qu'un import depuis Firestore peut
+     * modifier : les autres viennent du document lui-même et n'ont pas à y être réécrits
+     */
+    static Set<String> derivedFields(Signalement update, boolean created) {
+        if (!created && update.getStatut() == null) {
+            return Set.of();
+        }
+        return Set.of("dateNouveau", "dateEnCours", "dateTermine", "avancement");
+    }
+
+    /**
+     * Signalement (mise à jour partielle : champs absents à null) depuis un document Firestore
+     *
+     * @throws IllegalArgumentException si le document n'a pas d'identifiant
+     */
+    static Signalement fromDocument(Map<String, Object> data) {
+        Object id = data.get("idSignalement") != null ? data.get("idSignalement") : data.get("id");
+        if (id == null || id.toString().isBlank()) {
+            throw new IllegalArgumentException("Document Firestore sans identifiant");
+        }
+        Signalement signalement = new Signalement();
+        signalement.setIdSignalement(id.toString());
+        for (Map.Entry<String, BiConsumer<Signalement, Object>> e : SETTERS.entrySet()) {
+            Object value = data.get(e.getKey());
+            if (value != null) {
+                e.getValue().accept(signalement, value);
+            }
+        }
+        return signalement;
+    }
+
+    // ISO 8601 (mobile : 2026-02-10T06:45:26.123Z), format SQL (export) ou Timestamp Firestore
+    private static Timestamp toTimestamp(Object value) {
+        if (value instanceof com.google.cloud.Timestamp t) {
+            return t.toSqlTimestamp();
+        }
+        String date = value.toString();
+        try {
+            return date.contains("T") ? Timestamp.from(Instant.parse(date)) : Timestamp.valueOf(date);
+        } catch (RuntimeException e) {
+            // Si échec, utiliser la date actuelle
+            log.warn("Format de date non reconnu: {}, utilisation de la date actuelle", date);
+            return new Timestamp(System.currentTimeMillis());
+        }
+    }
+
+    private static void setUserId(Signalement s, Object value) {
+        try {
+            User user = new User();
+            user.setId(Long.valueOf(value.toString()));
+            s.setUtilisateur(user);
+        } catch (NumberFormatException e) {
+            // Ignorer si l'ID utilisateur n'est pas un nombre valide
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.cloud.service;
+
+import com.cloud.dto.BoundingBox;
+import com.cloud.dto.HeatmapCell;
+import com.cloud.dto.SignalementMarker;
+import com.cloud.event.SignalementChangedEvent;
+import com.cloud.repository.SignalementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Carte de chaleur des signalements sur une grille geohash, précalculée pour les précisions
+ * MIN_PRECISION..MAX_PRECISION (de ~150 km à ~40 m de côté). Chaque cellule garde nombre,
+ * surface, budget et somme des niveaux ; une écriture ne touche qu'une cellule par précision.
+ */
+@Component
+public class SignalementHeatmapIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementHeatmapIndex.class);
+
+    public static final int MIN_PRECISION = 3;
+    public static final int MAX_PRECISION = 8;
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private final SignalementRepository signalementRepository;
+    private final SignalementRowVersions rowVersions;
+
+    // levels[precision - MIN_PRECISION] : (x, y) de la cellule -> agrégats
+    private final List<Map<Long, Cell>> levels = new ArrayList<>();
+    private final Map<String, SignalementMarker> members = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SignalementVersionGate versions = new SignalementVersionGate();
+
+    public SignalementHeatmapIndex(SignalementRepository signalementRepository, SignalementRowVersions rowVersions) {
+        this.signalementRepository = signalementRepository;
+        this.rowVersions = rowVersions;
+        for (int p = MIN_PRECISION; p <= MAX_PRECISION; p++) {
+            levels.add(new HashMap<>());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Lecture sous le verrou d'écriture : un événement reçu pendant la lecture attend et n'est pas écrasé
+        lock.writeLock().lock();
+        List<SignalementMarker> all;
+        try {
+            SignalementRowVersions.Snapshot<SignalementMarker> snapshot = rowVersions.snapshot(signalementRepository::findAllMarkers);
+            all = snapshot.getRows();
+            versions.reset(snapshot.getVersion());
+            members.clear();
+            levels.forEach(Map::clear);
+            for (SignalementMarker m : all) {
+                apply(m);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Carte de chaleur construite pour {} signalements (geohash {}-{})",
+                all.size(), MIN_PRECISION, MAX_PRECISION);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSignalementChanged(SignalementChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!versions.accept(event)) {
+                return;
+            }
+            if (event.isDeleted()) {
+                SignalementMarker previous = members.remove(event.getSignalement().getIdSignalement());
+                if (previous != null) {
+                    for (int p = MIN_PRECISION; p <= MAX_PRECISION; p++) {
+                        removeFromCell(previous, p);
+                    }
+                }
+            } else {
+                apply(SignalementMarker.from(event.getSignalement()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Appelé sous verrou d'écriture
+    private void apply(SignalementMarker marker) {
+        SignalementMarker previous = members.put(marker.getIdSignalement(), marker);
+        for (int p = MIN_PRECISION; p <= MAX_PRECISION; p++) {
+            if (previous != null) {
+                removeFromCell(previous, p);
+            }
+            long key = key(col(marker.getLongitude(), p), row(marker.getLatitude(), p));
+            levels.get(p - MIN_PRECISION).computeIfAbsent(key, k -> new Cell()).add(marker, 1);
+        }
+    }
+
+    private void removeFromCell(SignalementMarker marker, int precision) {
+        Map<Long, Cell> cells = levels.get(precision - MIN_PRECISION);
+        long key = key(col(marker.getLongitude(), precision), row(marker.getLatitude(), precision));
+        Cell cell = cells.get(key);
+        if (cell != null && cell.add(marker, -1) == 0) {
+            cells.remove(key);
+        }
+    }
+
+    /**
+     * Cellules non vides qui recoupent bbox, à la précision geohash demandée
+     *
+     * @throws IllegalArgumentException si la précision n'est pas précalculée
+     */
+    public List<HeatmapCell> getCells(int precision, BoundingBox bbox) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("precision doit être comprise entre "
+                    + MIN_PRECISION + " et " + MAX_PRECISION);
+        }
+        int minX = col(bbox.getMinLng(), precision);
+        int maxX = col(bbox.getMaxLng(), precision);
+        int minY = row(bbox.getMinLat(), precision);
+        int maxY = row(bbox.getMaxLat(), precision);
+
+        List<HeatmapCell> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Map<Long, Cell> cells = levels.get(precision - MIN_PRECISION);
+            long rangeSize = (long) (maxX - minX + 1) * (maxY - minY + 1);
+            if (rangeSize > cells.size()) {
+                for (Map.Entry<Long, Cell> e : cells.entrySet()) {
+                    int x = (int) (e.getKey() >> 32);
+                    int y = (int) (long) e.getKey();
+                    if (x >= minX && x <= maxX && y >= minY && y <= maxY) {
+                        result.add(e.getValue().toHeatmapCell(x, y, precision));
+                    }
+                }
+            } else {
+                for (int x = minX; x <= maxX; x++) {
+                    for (int y = minY; y <= maxY; y++) {
+                        Cell cell = cells.get(key(x, y));
+                        if (cell != null) {
+                            result.add(cell.toHeatmapCell(x, y, precision));
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    // Un geohash de p caractères code 5p bits, alternés longitude / latitude en commençant par la longitude
+    private static int lngBits(int precision) {
+        return (5 * precision + 1) / 2;
+    }
+
+    private static int latBits(int precision) {
+        return 5 * precision / 2;
+    }
+
+    private static int col(double lng, int precision) {
+        int n = 1 << lngBits(precision);
+        return Math.min(n - 1, (int) Math.floor((lng + 180d) / 360d * n));
+    }
+
+    private static int row(double lat, int precision) {
+        int n = 1 << latBits(precision);
+        return Math.min(n - 1, (int) Math.floor((lat + 90d) / 180d * n));
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private static String geohash(int x, int y, int precision) {
+        int lngBits = lngBits(precision);
+        int latBits = latBits(precision);
+        char[] chars = new char[precision];
+        int value = 0;
+        for (int i = 0; i < 5 * precision; i++) {
+            int bit = i % 2 == 0 ? (x >> (--lngBits)) & 1 : (y >> (--latBits)) & 1;
+            value = (value << 1) | bit;
+            if (i % 5 == 4) {
+                chars[i / 5] = BASE32[value];
+                value = 0;
+            }
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Agrégats d'une cellule, modifiés uniquement sous le verrou d'écriture
+     */
+    private static final class Cell {
+        private int count;
+        private double surface;
+        private double budget;
+        private long sumNiveau;
+        private int nbNiveau;
+
+        int add(SignalementMarker m, int sign) {
+            count += sign;
+            surface += sign * (m.getSurfaceM2() != null ? m.getSurfaceM2() : 0);
+            budget += sign * (m.getBudget() != null ? m.getBudget() : 0);
+            if (m.getNiveau() != null) {
+                sumNiveau += sign * m.getNiveau();
+                nbNiveau += sign;
+            }
+            return count;
+        }
+
+        HeatmapCell toHeatmapCell(int x, int y, int precision) {
+            double cellLng = 360d / (1 << lngBits(precision));
+            double cellLat = 180d / (1 << latBits(precision));
+            Double niveauMoyen = nbNiveau > 0 ? Math.round(sumNiveau * 10.0 / nbNiveau) / 10.0 : null;
+            return new HeatmapCell(geohash(x, y, precision), -90d + (y + 0.5) * cellLat,
+                    -180d + (x + 0.5) * cellLng, count, surface, budget, niveauMoyen);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.cloud.service;
+
+import com.cloud.dto.SignalementTrendPoint;
+import com.cloud.model.Watermark;
+import com.cloud.repository.SignalementRepository;
+import com.cloud.repository.SignalementRollupRepository;
+import com.cloud.repository.SignalementTombstoneRepository;
+import com.cloud.repository.WatermarkRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Agrégats journaliers par entreprise (nouveaux, terminés, budget engagé) servant
+ * aux courbes de tendance. Un traitement périodique ne recalcule que les jours
+ * touchés par les signalements modifiés depuis le dernier passage (watermark
+ * sur les versions de ligne), puis les tendances se lisent dans la petite table
+ * d'agrégats au lieu de la table signalement.
+ */
+@Service
+public class SignalementRollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementRollupService.class);
+
+    static final String WATERMARK = "signalement_daily_rollup";
+    private static final Set<String> GRANULARITIES = Set.of("day", "week", "month");
+
+    // Deux jours touchés à moins de MAX_GAP_DAYS d'écart sont recalculés en une seule plage
+    private static final int MAX_GAP_DAYS = 7;
+
+    private final SignalementRollupRepository rollupRepository;
+    private final SignalementRepository signalementRepository;
+    private final SignalementTombstoneRepository tombstoneRepository;
+    private final WatermarkRepository watermarkRepository;
+
+    public SignalementRollupService(SignalementRollupRepository rollupRepository,
+                                    SignalementRepository signalementRepository,
+                                    SignalementTombstoneRepository tombstoneRepository,
+                                    WatermarkRepository watermarkRepository) {
+        this.rollupRepository = rollupRepository;
+        this.signalementRepository = signalementRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.watermarkRepository = watermarkRepository;
+    }
+
+    /**
+     * Lecture en REPEATABLE READ : jours touchés et jours mémorisés viennent du même instantané.
+     * Les versions étant validées dans l'ordre (SignalementRowVersions), toutes celles
+     * inférieures ou égales à target y figurent : le passage suivant repart exactement de là.
+     */
+    @Scheduled(initialDelayString = "${stats.rollup.initial-delay-ms:10000}",
+            fixedDelayString = "${stats.rollup.refresh-ms:60000}")
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public void refresh() {
+        long watermark = watermarkRepository.findById(WATERMARK).map(Watermark::getValeur).orElse(-1L);
+        long target = Math.max(signalementRepository.findMaxRowVersion(), tombstoneRepository.findMaxRowVersion());
+        if (target <= watermark) {
+            return;
+        }
+        long since = watermark;
+
+        TreeSet<LocalDate> days = rollupRepository.findTouchedDays(since);
+        int ranges = 0;
+        LocalDate start = null;
+        LocalDate end = null;
+        for (LocalDate day : days) {
+            if (start != null && day.isAfter(end.plusDays(MAX_GAP_DAYS))) {
+                rollupRepository.recompute(start, end);
+                ranges++;
+                start = null;
+            }
+            if (start == null) {
+                start = day;
+            }
+            end = day;
+        }
+        if (start != null) {
+            rollupRepository.recompute(start, end);
+            ranges++;
+        }
+        rollupRepository.refreshRollupDays(since);
+        watermarkRepository.save(new Watermark(WATERMARK, target));
+        log.debug("Agrégats journaliers : {} jours recalculés en {} plages (versions {} -> {})",
+                days.size(), ranges, since, target);
+    }
+
+    /**
+     * @param granularity day, week ou month
+     * @param entreprise  null pour toutes
+     * @throws IllegalArgumentException si la granularité ou la plage est invalide
+     */
+    public List<SignalementTrendPoint> getTrends(String granularity, LocalDate from, LocalDate to, String entreprise) {
+        if (!GRANULARITIES.contains(granularity)) {
+            throw new IllegalArgumentException("Granularité invalide (day, week ou month)");
+        }
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from doit précéder to");
+        }
+        return rollupRepository.findTrends(granularity, from, to, entreprise);
+    }
+}
@@ -0,0 +1,148 @@
+package com.cloud.service;
+
+import com.cloud.repository.SignalementRepository;
+import com.cloud.repository.SignalementRowVersionRepository;
+import com.cloud.repository.SignalementTombstoneRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Supplier;
+
+/**
+ * Versions de ligne (signalements et tombstones) : le jeton de synchronisation des
+ * clients mobiles. Elles viennent d'une séquence PostgreSQL, sous un verrou consultatif
+ * tenu jusqu'au commit : les versions sont validées dans l'ordre, donc un client qui a
+ * lu la version v ne verra jamais apparaître plus tard une version inférieure, quelle
+ * que soit l'instance qui écrit.
+ */
+@Component
+public class SignalementRowVersions {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementRowVersions.class);
+
+    private final SignalementRepository signalementRepository;
+    private final SignalementTombstoneRepository tombstoneRepository;
+    private final SignalementRowVersionRepository versionRepository;
+    // La séquence est créée dans une transaction à part, jamais dans celle d'une écriture
+    private final TransactionTemplate ddlTransaction;
+    private final TransactionTemplate snapshotTransaction;
+    private volatile boolean sequenceReady;
+    // Plus petite version de chaque transaction locale pas encore terminée (listeners après commit compris)
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+
+    public SignalementRowVersions(SignalementRepository signalementRepository,
+                                  SignalementTombstoneRepository tombstoneRepository,
+                                  SignalementRowVersionRepository versionRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.signalementRepository = signalementRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.versionRepository = versionRepository;
+        this.ddlTransaction = new TransactionTemplate(transactionManager);
+        this.ddlTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTransaction = new TransactionTemplate(transactionManager);
+        this.snapshotTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTransaction.setReadOnly(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initMissingVersions() {
+        int updated = signalementRepository.initMissingRowVersions();
+        if (updated > 0) {
+            log.info("{} signalements existants initialisés en version 0", updated);
+        }
+        ensureSequence();
+    }
+
+    /**
+     * À appeler avant les écritures de la transaction (le verrou est pris ici)
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long next() {
+        return next(1).get(0);
+    }
+
+    /**
+     * count versions croissantes, dans l'ordre des écritures du lot
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<Long> next(int count) {
+        ensureSequence();
+        versionRepository.lockAllocation();
+        List<Long> versions = versionRepository.nextValues(count);
+        long first = versions.get(0);
+        inFlight.add(first);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            // Après les listeners d'ordre par défaut : la version reste en cours tant qu'ils n'ont pas tourné
+            @Override
+            public int getOrder() {
+                return Ordered.LOWEST_PRECEDENCE;
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                inFlight.remove(first);
+            }
+        });
+        return versions;
+    }
+
+    /**
+     * Plus petite version attribuée sur cette instance dont la transaction (et ses listeners
+     * après commit) n'est pas terminée, Long.MAX_VALUE s'il n'y en a pas. Un listener peut
+     * ainsi savoir si une version inférieure à celle qu'il traite est encore à venir.
+     */
+    public long lowestInFlight() {
+        Long first = inFlight.ceiling(Long.MIN_VALUE);
+        return first != null ? first : Long.MAX_VALUE;
+    }
+
+    /**
+     * Lecture qui reconstruit un index en mémoire, avec la plus grande version du même
+     * instantané (REPEATABLE READ). Les versions étant validées dans l'ordre, toute écriture
+     * de version inférieure ou égale y figure déjà.
+     */
+    public <T> Snapshot<T> snapshot(Supplier<List<T>> query) {
+        return snapshotTransaction.execute(status -> {
+            long version = Math.max(signalementRepository.findMaxRowVersion(), tombstoneRepository.findMaxRowVersion());
+            return new Snapshot<>(query.get(), version);
+        });
+    }
+
+    private void ensureSequence() {
+        if (!sequenceReady) {
+            synchronized (this) {
+                if (!sequenceReady) {
+                    ddlTransaction.executeWithoutResult(status -> versionRepository.createSequence(
+                            Math.max(signalementRepository.findMaxRowVersion(), tombstoneRepository.findMaxRowVersion())));
+                    sequenceReady = true;
+                }
+            }
+        }
+    }
+
+    public static final class Snapshot<T> {
+        private final List<T> rows;
+        private final long version;
+
+        Snapshot(List<T> rows, long version) {
+            this.rows = rows;
+            this.version = version;
+        }
+
+        public List<T> getRows() { return rows; }
+        public long getVersion() { return version; }
+    }
+}
@@ -0,0 +1,193 @@
+package com.cloud.service;
+
+import com.cloud.dto.SignalementView;
+import com.cloud.event.SignalementChangedEvent;
+import com.cloud.model.Signalement;
+import com.cloud.repository.SignalementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index inversé en mémoire sur titre, description et entreprise, classé par BM25.
+ * Le titre pèse plus que l'entreprise, qui pèse plus que la description.
+ * Le dernier mot de la requête est aussi cherché comme préfixe (saisie en cours).
+ */
+@Component
+public class SignalementSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementSearchIndex.class);
+
+    private static final float WEIGHT_TITRE = 3f;
+    private static final float WEIGHT_ENTREPRISE = 2f;
+    private static final float WEIGHT_DESCRIPTION = 1f;
+    private static final double BM25_K1 = 1.2;
+    private static final double BM25_B = 0.75;
+    private static final int MAX_PREFIX_EXPANSIONS = 20;
+
+    private final SignalementRepository signalementRepository;
+    private final SignalementRowVersions rowVersions;
+
+    // terme -> (id signalement -> fréquence pondérée)
+    private final NavigableMap<String, Map<String, Float>> postings = new TreeMap<>();
+    // id signalement -> ses termes, pour retirer l'ancienne version lors d'une mise à jour
+    private final Map<String, Map<String, Float>> documents = new HashMap<>();
+    private final Map<String, Float> documentLengths = new HashMap<>();
+    private double totalLength;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SignalementVersionGate versions = new SignalementVersionGate();
+
+    public SignalementSearchIndex(SignalementRepository signalementRepository, SignalementRowVersions rowVersions) {
+        this.signalementRepository = signalementRepository;
+        this.rowVersions = rowVersions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        // Lecture sous le verrou d'écriture : un événement reçu pendant la lecture attend et n'est pas écrasé
+        lock.writeLock().lock();
+        List<SignalementView> all;
+        try {
+            SignalementRowVersions.Snapshot<SignalementView> snapshot = rowVersions.snapshot(signalementRepository::findAllViews);
+            all = snapshot.getRows();
+            versions.reset(snapshot.getVersion());
+            postings.clear();
+            documents.clear();
+            documentLengths.clear();
+            totalLength = 0;
+            for (SignalementView v : all) {
+                index(v.getIdSignalement(), v.getTitre(), v.getDescription(), v.getEntreprise());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Index de recherche construit : {} signalements, {} termes", all.size(), postings.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSignalementChanged(SignalementChangedEvent event) {
+        Signalement s = event.getSignalement();
+        lock.writeLock().lock();
+        try {
+            if (!versions.accept(event)) {
+                return;
+            }
+            unindex(s.getIdSignalement());
+            if (!event.isDeleted()) {
+                index(s.getIdSignalement(), s.getTitre(), s.getDescription(), s.getEntreprise());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return identifiants des signalements trouvés, du plus pertinent au moins pertinent,
+     * associés à leur score
+     */
+    public Map<String, Double> search(String query, int limit) {
+        List<String> terms = FrenchTextAnalyzer.analyze(query);
+        Map<String, Double> scores = new HashMap<>();
+        if (terms.isEmpty()) {
+            return scores;
+        }
+        lock.readLock().lock();
+        try {
+            int n = documents.size();
+            double avgLength = n > 0 ? totalLength / n : 1;
+            for (String term : expand(terms)) {
+                Map<String, Float> docs = postings.get(term);
+                if (docs == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (n - docs.size() + 0.5) / (docs.size() + 0.5));
+                for (Map.Entry<String, Float> e : docs.entrySet()) {
+                    double tf = e.getValue();
+                    double norm = BM25_K1 * (1 - BM25_B + BM25_B * documentLengths.get(e.getKey()) / avgLength);
+                    scores.merge(e.getKey(), idf * tf * (BM25_K1 + 1) / (tf + norm), Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<String, Double> ranked = new LinkedHashMap<>();
+        scores.entrySet().stream()
+                .sorted(Map.Entry.<String, Double>comparingByValue().reversed())
+                .limit(limit)
+                .forEach(e -> ranked.put(e.getKey(), e.getValue()));
+        return ranked;
+    }
+
+    // Appelé sous verrou de lecture : ajoute les termes commençant par le dernier mot saisi
+    private Set<String> expand(List<String> terms) {
+        Set<String> expanded = new LinkedHashSet<>(terms);
+        String last = terms.get(terms.size() - 1);
+        int added = 0;
+        for (String candidate : postings.subMap(last, true, last + Character.MAX_VALUE, false).keySet()) {
+            if (added++ >= MAX_PREFIX_EXPANSIONS) {
+                break;
+            }
+            expanded.add(candidate);
+        }
+        return expanded;
+    }
+
+    // Appelé sous verrou d'écriture
+    private void index(String id, String titre, String description, String entreprise) {
+        Map<String, Float> tf = new HashMap<>();
+        addField(tf, titre, WEIGHT_TITRE);
+        addField(tf, entreprise, WEIGHT_ENTREPRISE);
+        addField(tf, description, WEIGHT_DESCRIPTION);
+        if (tf.isEmpty()) {
+            return;
+        }
+        float length = 0;
+        for (Map.Entry<String, Float> e : tf.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new HashMap<>()).put(id, e.getValue());
+            length += e.getValue();
+        }
+        documents.put(id, tf);
+        documentLengths.put(id, length);
+        totalLength += length;
+    }
+
+    // Appelé sous verrou d'écriture
+    private void unindex(String id) {
+        Map<String, Float> tf = documents.remove(id);
+        if (tf == null) {
+            return;
+        }
+        for (String term : tf.keySet()) {
+            Map<String, Float> docs = postings.get(term);
+            if (docs != null) {
+                docs.remove(id);
+                if (docs.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        Float length = documentLengths.remove(id);
+        totalLength -= length != null ? length : 0;
+    }
+
+    private static void addField(Map<String, Float> tf, String text, float weight) {
+        for (String term : FrenchTextAnalyzer.analyze(text)) {
+            tf.merge(term, weight, Float::sum);
+        }
+    }
+}
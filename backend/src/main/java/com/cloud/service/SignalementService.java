@@ -1,38 +1,194 @@
 package com.cloud.service;
 
+import com.cloud.config.CacheConfig;
+import com.cloud.dto.SignalementChanges;
+import com.cloud.dto.SignalementDetail;
+import com.cloud.dto.SignalementPage;
+import com.cloud.dto.SignalementSearchHit;
+import com.cloud.dto.SignalementStatutEvent;
+import com.cloud.dto.SignalementView;
+import com.cloud.event.SignalementChangedEvent;
 import com.cloud.model.Signalement;
+import com.cloud.model.SignalementTombstone;
+import com.cloud.repository.SignalementBatchRepository;
 import com.cloud.repository.SignalementRepository;
+import com.cloud.repository.SignalementSpecifications;
+import com.cloud.repository.SignalementTombstoneRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class SignalementService {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_BATCH_SIZE = 1000;
+
     private final SignalementRepository signalementRepository;
+    private final SignalementBatchRepository batchRepository;
+    private final SignalementTombstoneRepository tombstoneRepository;
+    private final SignalementRowVersions rowVersions;
+    private final SignalementSearchIndex searchIndex;
+    private final SignalementStatutHistory statutHistory;
+    private final FirestoreOutbox firestoreOutbox;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public SignalementService(SignalementRepository signalementRepository) {
+    public SignalementService(SignalementRepository signalementRepository,
+                              SignalementBatchRepository batchRepository,
+                              SignalementTombstoneRepository tombstoneRepository,
+                              SignalementRowVersions rowVersions,
+                              SignalementSearchIndex searchIndex,
+                              SignalementStatutHistory statutHistory,
+                              FirestoreOutbox firestoreOutbox,
+                              ApplicationEventPublisher eventPublisher) {
         this.signalementRepository = signalementRepository;
+        this.batchRepository = batchRepository;
+        this.tombstoneRepository = tombstoneRepository;
+        this.rowVersions = rowVersions;
+        this.searchIndex = searchIndex;
+        this.statutHistory = statutHistory;
+        this.firestoreOutbox = firestoreOutbox;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        batchRepository.createKeysetIndexes();
     }
 
     public List<Signalement> getAllSignalements() {
         return signalementRepository.findAll();
     }
 
+    /**
+     * Liste pour l'affichage : une seule requête, sans charger les entités User
+     */
+    // Clé = version des données (incrémentée après chaque commit) : une liste lue avant une
+    // écriture ne peut pas être servie sous la version suivante, quel que soit l'ordre des
+    // traitements après commit. sync : un seul appelant relit la table par version
+    @Cacheable(cacheNames = CacheConfig.SIGNALEMENTS, key = "@signalementDataVersion.getVersion()", sync = true)
+    public List<SignalementView> getAllSignalementViews() {
+        return signalementRepository.findAllViews();
+    }
+
+    /**
+     * Recherche plein texte (titre, description, entreprise), résultats classés par pertinence
+     */
+    public List<SignalementSearchHit> search(String query, Integer limit) {
+        int size = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        Map<String, Double> ranked = searchIndex.search(query, size);
+        if (ranked.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<String, SignalementView> views = signalementRepository.findViewsByIds(ranked.keySet()).stream()
+                .collect(Collectors.toMap(SignalementView::getIdSignalement, Function.identity()));
+        List<SignalementSearchHit> hits = new ArrayList<>();
+        for (Map.Entry<String, Double> e : ranked.entrySet()) {
+            SignalementView v = views.get(e.getKey());
+            if (v != null) {
+                hits.add(new SignalementSearchHit(e.getValue(), v));
+            }
+        }
+        return hits;
+    }
+
+    @Cacheable(cacheNames = CacheConfig.SIGNALEMENT_DETAIL, key = "#id", unless = "#result == null")
+    public Optional<SignalementDetail> getSignalementDetail(String id) {
+        return signalementRepository.findWithUtilisateurByIdSignalement(id).map(SignalementDetail::from);
+    }
+
+    /**
+     * Pagination par curseur (keyset) : pas d'OFFSET, chaque page est une
+     * lecture d'index à partir de la dernière ligne de la page précédente.
+     */
+    public SignalementPage<SignalementView> getSignalementsPage(String cursor, Integer limit, String statut,
+                                                           String entreprise, Integer niveau,
+                                                           Timestamp from, Timestamp to) {
+        int pageSize = limit == null ? DEFAULT_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        Specification<Signalement> spec = Specification.unrestricted();
+        if (statut != null && !statut.isBlank()) spec = spec.and(SignalementSpecifications.hasStatut(statut));
+        if (entreprise != null && !entreprise.isBlank()) spec = spec.and(SignalementSpecifications.hasEntreprise(entreprise));
+        if (niveau != null) spec = spec.and(SignalementSpecifications.hasNiveau(niveau));
+        if (from != null) spec = spec.and(SignalementSpecifications.dateFrom(from));
+        if (to != null) spec = spec.and(SignalementSpecifications.dateTo(to));
+        // On lit une ligne de plus pour savoir s'il existe une page suivante
+        List<Signalement> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = signalementRepository.findKeysetPage(spec, pageSize + 1);
+        } else {
+            SignalementCursor position = SignalementCursor.decode(cursor);
+            if (position.getDateSignalement() == null) {
+                rows = signalementRepository.findKeysetPage(
+                        spec.and(SignalementSpecifications.undatedAfter(position.getIdSignalement())), pageSize + 1);
+            } else {
+                // Deux parcours d'index par plage plutôt qu'un OR : lignes datées, puis sans date si la page n'est pas pleine
+                rows = new ArrayList<>(signalementRepository.findKeysetPage(spec.and(SignalementSpecifications.datedBefore(
+                        position.getDateSignalement(), position.getIdSignalement())), pageSize + 1));
+                if (rows.size() <= pageSize) {
+                    rows.addAll(signalementRepository.findKeysetPage(
+                            spec.and(SignalementSpecifications.undatedAfter(null)), pageSize + 1 - rows.size()));
+                }
+            }
+        }
+
+        String nextCursor = null;
+        if (rows.size() > pageSize) {
+            rows = rows.subList(0, pageSize);
+            Signalement last = rows.get(pageSize - 1);
+            nextCursor = new SignalementCursor(last.getDateSignalement(), last.getIdSignalement()).encode();
+        }
+        return new SignalementPage<>(rows.stream().map(SignalementView::from).collect(Collectors.toList()), nextCursor);
+    }
+
+    @CacheEvict(cacheNames = CacheConfig.SIGNALEMENT_DETAIL, key = "#result.idSignalement")
+    @Transactional
     public Signalement addSignalement(Signalement signalement) {
         // Si c'est un nouveau signalement, initialiser dateNouveau
         if (signalement.getDateNouveau() == null) {
             signalement.setDateNouveau(new Timestamp(System.currentTimeMillis()));
         }
-        return signalementRepository.save(signalement);
+        signalement.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+        signalement.setRowVersion(rowVersions.next());
+        Signalement saved = signalementRepository.save(signalement);
+        tombstoneRepository.deleteByIdSignalementIn(List.of(saved.getIdSignalement()));
+        statutHistory.record(saved.getIdSignalement(), null, saved.getStatut(), saved.getUpdatedAt());
+        firestoreOutbox.record(saved.getIdSignalement(), Set.of(SignalementFirestoreMapping.ALL_FIELDS));
+        eventPublisher.publishEvent(new SignalementChangedEvent(SignalementChangedEvent.Type.CREATED, saved));
+        return saved;
     }
 
+    @CacheEvict(cacheNames = CacheConfig.SIGNALEMENT_DETAIL, key = "#id")
+    @Transactional
     public Signalement updateSignalement(String id, Signalement updated) {
         // UPSERT: Update si existe, Insert sinon (pour synchroniser depuis Firebase)
         Signalement s = signalementRepository.findById(id).orElse(new Signalement());
+        boolean created = s.getIdSignalement() == null;
+        String ancienStatut = s.getStatut();
+        // État Firestore avant modification, pour n'exporter que les champs changés
+        Map<String, Object> before = created ? null : SignalementFirestoreMapping.toDocument(s);
         
         // Si nouveau signalement, définir l'ID Firebase
-        if (s.getIdSignalement() == null) {
+        if (created) {
             s.setIdSignalement(id);
         }
         
@@ -86,6 +242,157 @@ public class SignalementService {
         if (updated.getNiveau() != null) s.setNiveau(updated.getNiveau());
         if (updated.getUtilisateur() != null) s.setUtilisateur(updated.getUtilisateur());
         
-        return signalementRepository.save(s);
+        s.setUpdatedAt(new Timestamp(System.currentTimeMillis()));
+        s.setRowVersion(rowVersions.next());
+        Signalement saved = signalementRepository.save(s);
+        if (created) {
+            tombstoneRepository.deleteByIdSignalementIn(List.of(id));
+        }
+        statutHistory.record(id, ancienStatut, saved.getStatut(), saved.getUpdatedAt());
+        firestoreOutbox.record(id, created ? Set.of(SignalementFirestoreMapping.ALL_FIELDS)
+                : SignalementFirestoreMapping.changedFields(before, SignalementFirestoreMapping.toDocument(saved)));
+        eventPublisher.publishEvent(new SignalementChangedEvent(
+                created ? SignalementChangedEvent.Type.CREATED : SignalementChangedEvent.Type.UPDATED, saved));
+        return saved;
+    }
+
+    /**
+     * Même sémantique que updateSignalement (UPSERT, champs null ignorés, dates d'avancement),
+     * mais pour tout un lot : un seul batch JDBC et une seule transaction.
+     *
+     * @return les signalements tels qu'enregistrés
+     * @throws IllegalArgumentException si le lot est trop gros ou qu'un élément n'a pas d'identifiant
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.SIGNALEMENT_DETAIL, allEntries = true)
+    public List<Signalement> upsertBatch(List<Signalement> updates) {
+        return upsertAll(updates, false);
+    }
+
+    /**
+     * upsertBatch pour des documents lus dans Firestore : seuls les champs calculés par le
+     * serveur passent par l'outbox, le reste du document est déjà à jour côté mobile
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.SIGNALEMENT_DETAIL, allEntries = true)
+    public List<Signalement> importBatch(List<Signalement> updates) {
+        return upsertAll(updates, true);
+    }
+
+    private List<Signalement> upsertAll(List<Signalement> updates, boolean fromFirestore) {
+        if (updates.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Lot trop volumineux (max " + MAX_BATCH_SIZE + ")");
+        }
+        Set<String> ids = new LinkedHashSet<>();
+        for (int i = 0; i < updates.size(); i++) {
+            String id = updates.get(i).getIdSignalement();
+            if (id == null || id.isBlank()) {
+                throw new IllegalArgumentException("idSignalement manquant (élément " + i + ")");
+            }
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<String, String> existing = batchRepository.findStatuts(ids);
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        List<Long> versions = rowVersions.next(updates.size());
+        batchRepository.upsertAll(updates, versions, now);
+        Set<String> inserted = new LinkedHashSet<>(ids);
+        inserted.removeAll(existing.keySet());
+        if (!inserted.isEmpty()) {
+            tombstoneRepository.deleteByIdSignalementIn(inserted);
+        }
+
+        // Transitions de statut, dans l'ordre du lot (un même id peut y figurer plusieurs fois)
+        Map<String, String> statuts = new HashMap<>(existing);
+        List<SignalementStatutEvent> transitions = new ArrayList<>();
+        for (Signalement u : updates) {
+            String ancien = statuts.get(u.getIdSignalement());
+            if (u.getStatut() != null && !u.getStatut().equals(ancien)) {
+                transitions.add(new SignalementStatutEvent(null, u.getIdSignalement(), ancien, u.getStatut(), now));
+                statuts.put(u.getIdSignalement(), u.getStatut());
+            }
+        }
+        statutHistory.recordAll(transitions);
+        // Champs à exporter : l'état précédent n'est pas chargé, on prend ceux fournis dans le lot
+        Map<String, Set<String>> outbox = new LinkedHashMap<>();
+        for (Signalement u : updates) {
+            boolean created = !existing.containsKey(u.getIdSignalement());
+            Set<String> fields = outbox.computeIfAbsent(u.getIdSignalement(), k -> new LinkedHashSet<>());
+            if (fromFirestore) {
+                fields.addAll(SignalementFirestoreMapping.derivedFields(u, created));
+            } else {
+                fields.addAll(created ? Set.of(SignalementFirestoreMapping.ALL_FIELDS)
+                        : SignalementFirestoreMapping.touchedFields(u));
+            }
+        }
+        firestoreOutbox.recordAll(outbox);
+
+        // Relecture en une requête pour notifier les index avec l'état final
+        List<Signalement> saved = signalementRepository.findAllById(ids);
+        for (Signalement s : saved) {
+            eventPublisher.publishEvent(new SignalementChangedEvent(existing.containsKey(s.getIdSignalement())
+                    ? SignalementChangedEvent.Type.UPDATED : SignalementChangedEvent.Type.CREATED, s));
+        }
+        return saved;
+    }
+
+    /**
+     * Supprime un signalement et laisse une tombstone pour la synchronisation différentielle
+     *
+     * @return false si le signalement n'existe pas
+     */
+    @Transactional
+    @CacheEvict(cacheNames = CacheConfig.SIGNALEMENT_DETAIL, key = "#id")
+    public boolean deleteSignalement(String id) {
+        Optional<Signalement> existing = signalementRepository.findById(id);
+        if (existing.isEmpty()) {
+            return false;
+        }
+        signalementRepository.delete(existing.get());
+        long version = rowVersions.next();
+        tombstoneRepository.save(new SignalementTombstone(id, version, new Timestamp(System.currentTimeMillis())));
+        firestoreOutbox.recordDeleted(id);
+        eventPublisher.publishEvent(new SignalementChangedEvent(
+                SignalementChangedEvent.Type.DELETED, existing.get(), version));
+        return true;
+    }
+
+    /**
+     * Modifications (créations, mises à jour, suppressions) postérieures au jeton since,
+     * dans l'ordre des versions. since &lt; 0 renvoie tout depuis l'origine.
+     * Lecture en REPEATABLE READ : signalements et tombstones viennent du même instantané,
+     * sinon une version validée entre les deux requêtes pourrait être sautée par le jeton.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public SignalementChanges getChangesSince(long since, Integer limit) {
+        int pageSize = limit == null ? MAX_PAGE_SIZE : Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        List<SignalementView> upserts = signalementRepository.findViewsChangedSince(since, Limit.of(pageSize + 1));
+        List<SignalementTombstone> tombstones =
+                tombstoneRepository.findByRowVersionGreaterThanOrderByRowVersionAsc(since, Limit.of(pageSize + 1));
+
+        // Fusion des deux listes triées, limitée à pageSize éléments au total
+        List<SignalementView> pageUpserts = new ArrayList<>();
+        List<String> pageDeleted = new ArrayList<>();
+        long token = since;
+        int i = 0;
+        int j = 0;
+        while (pageUpserts.size() + pageDeleted.size() < pageSize && (i < upserts.size() || j < tombstones.size())) {
+            boolean takeUpsert = j >= tombstones.size()
+                    || (i < upserts.size() && upserts.get(i).getRowVersion() < tombstones.get(j).getRowVersion());
+            if (takeUpsert) {
+                SignalementView v = upserts.get(i++);
+                pageUpserts.add(v);
+                token = v.getRowVersion();
+            } else {
+                SignalementTombstone t = tombstones.get(j++);
+                pageDeleted.add(t.getIdSignalement());
+                token = t.getRowVersion();
+            }
+        }
+        boolean hasMore = i < upserts.size() || j < tombstones.size();
+        return new SignalementChanges(pageUpserts, pageDeleted, String.valueOf(token), hasMore);
     }
 }
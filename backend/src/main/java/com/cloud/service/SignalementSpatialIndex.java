@@ -0,0 +1,236 @@
+package com.cloud.service;
+
+import com.cloud.dto.BoundingBox;
+import com.cloud.dto.SignalementMarker;
+import com.cloud.event.SignalementChangedEvent;
+import com.cloud.repository.SignalementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Index spatial en mémoire des signalements : grille régulière de cellules
+ * de GRID_DEG degrés. Une requête bbox ne visite que les cellules qui la
+ * recouvrent au lieu de parcourir toute la table. Un déplacement change de cellule
+ * sous le verrou d'écriture : une requête ne voit jamais un signalement en double ou absent.
+ */
+@Component
+public class SignalementSpatialIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementSpatialIndex.class);
+
+    // ~1,1 km à l'équateur : quelques dizaines de points par cellule en ville
+    private static final double GRID_DEG = 0.01;
+    private static final double EARTH_RADIUS_M = 6_371_000d;
+    private static final double METERS_PER_DEG_LAT = 111_320d;
+
+    private final SignalementRepository signalementRepository;
+    private final SignalementRowVersions rowVersions;
+
+    private final Map<String, SignalementMarker> markers = new HashMap<>();
+    private final Map<Long, Set<String>> cells = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SignalementVersionGate versions = new SignalementVersionGate();
+
+    public SignalementSpatialIndex(SignalementRepository signalementRepository, SignalementRowVersions rowVersions) {
+        this.signalementRepository = signalementRepository;
+        this.rowVersions = rowVersions;
+    }
+
+    /**
+     * Chargement initial au démarrage de l'application. La table est lue sous le verrou
+     * d'écriture : un événement reçu pendant la lecture attend et n'est pas écrasé.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        lock.writeLock().lock();
+        try {
+            SignalementRowVersions.Snapshot<SignalementMarker> all = rowVersions.snapshot(signalementRepository::findAllMarkers);
+            markers.clear();
+            cells.clear();
+            versions.reset(all.getVersion());
+            for (SignalementMarker m : all.getRows()) {
+                add(m);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Index spatial construit : {} signalements, {} cellules", markers.size(), cells.size());
+    }
+
+    // Passe avant les caches qui se recalculent à partir de l'index (tuiles)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSignalementChanged(SignalementChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!versions.accept(event)) {
+                return;
+            }
+            unlink(event.getSignalement().getIdSignalement());
+            if (!event.isDeleted()) {
+                add(SignalementMarker.from(event.getSignalement()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String idSignalement) {
+        lock.writeLock().lock();
+        try {
+            unlink(idSignalement);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(SignalementMarker marker) {
+        lock.writeLock().lock();
+        try {
+            unlink(marker.getIdSignalement());
+            add(marker);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return markers.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Appelés sous le verrou d'écriture
+    private void add(SignalementMarker marker) {
+        markers.put(marker.getIdSignalement(), marker);
+        cells.computeIfAbsent(cellKey(marker.getLatitude(), marker.getLongitude()), k -> new HashSet<>())
+                .add(marker.getIdSignalement());
+    }
+
+    private void unlink(String idSignalement) {
+        SignalementMarker previous = markers.remove(idSignalement);
+        if (previous != null) {
+            long cell = cellKey(previous.getLatitude(), previous.getLongitude());
+            Set<String> ids = cells.get(cell);
+            if (ids != null && ids.remove(idSignalement) && ids.isEmpty()) {
+                cells.remove(cell);
+            }
+        }
+    }
+
+    public List<SignalementMarker> findInBoundingBox(BoundingBox bbox) {
+        int minRow = row(bbox.getMinLat());
+        int maxRow = row(bbox.getMaxLat());
+        int minCol = col(bbox.getMinLng());
+        int maxCol = col(bbox.getMaxLng());
+
+        List<SignalementMarker> result = new ArrayList<>();
+        long cellCount = (long) (maxRow - minRow + 1) * (maxCol - minCol + 1);
+        lock.readLock().lock();
+        try {
+            collectCells(bbox, minRow, maxRow, minCol, maxCol, cellCount, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    private void collectCells(BoundingBox bbox, int minRow, int maxRow, int minCol, int maxCol, long cellCount,
+                              List<SignalementMarker> result) {
+        if (cellCount > cells.size()) {
+            // bbox très large (zoom monde) : moins coûteux de parcourir les cellules existantes
+            for (Map.Entry<Long, Set<String>> cell : cells.entrySet()) {
+                int r = (int) (cell.getKey() >> 32);
+                int c = (int) (long) cell.getKey();
+                if (r >= minRow && r <= maxRow && c >= minCol && c <= maxCol) {
+                    collect(cell.getValue(), bbox, result);
+                }
+            }
+        } else {
+            for (int r = minRow; r <= maxRow; r++) {
+                for (int c = minCol; c <= maxCol; c++) {
+                    Set<String> ids = cells.get(key(r, c));
+                    if (ids != null) {
+                        collect(ids, bbox, result);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Signalements à moins de radiusM mètres du point, du plus proche au plus lointain.
+     */
+    public List<SignalementMarker> findWithinRadius(double lat, double lng, double radiusM) {
+        if (radiusM <= 0) {
+            throw new IllegalArgumentException("Le rayon doit être positif");
+        }
+        double dLat = radiusM / METERS_PER_DEG_LAT;
+        double dLng = radiusM / (METERS_PER_DEG_LAT * Math.max(Math.cos(Math.toRadians(lat)), 1e-6));
+        BoundingBox bbox = new BoundingBox(Math.max(-90, lat - dLat), Math.max(-180, lng - dLng),
+                Math.min(90, lat + dLat), Math.min(180, lng + dLng));
+
+        List<SignalementMarker> result = new ArrayList<>();
+        for (SignalementMarker m : findInBoundingBox(bbox)) {
+            if (distanceMeters(lat, lng, m.getLatitude(), m.getLongitude()) <= radiusM) {
+                result.add(m);
+            }
+        }
+        result.sort(Comparator.comparingDouble(m -> distanceMeters(lat, lng, m.getLatitude(), m.getLongitude())));
+        return result;
+    }
+
+    private void collect(Set<String> ids, BoundingBox bbox, List<SignalementMarker> result) {
+        for (String id : ids) {
+            SignalementMarker m = markers.get(id);
+            if (m != null && bbox.contains(m.getLatitude(), m.getLongitude())) {
+                result.add(m);
+            }
+        }
+    }
+
+    // Distance de haversine
+    static double distanceMeters(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static int row(double lat) {
+        return (int) Math.floor(lat / GRID_DEG);
+    }
+
+    private static int col(double lng) {
+        return (int) Math.floor(lng / GRID_DEG);
+    }
+
+    private static long cellKey(double lat, double lng) {
+        return key(row(lat), col(lng));
+    }
+
+    private static long key(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+}
@@ -0,0 +1,226 @@
+package com.cloud.service;
+
+import com.cloud.dto.SignalementView;
+import com.cloud.event.SignalementChangedEvent;
+import com.cloud.model.Signalement;
+import com.cloud.repository.SignalementRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Agrégats des tableaux de bord (nombre, surface, budget, avancement, délais de traitement)
+ * tenus à jour à chaque écriture au lieu d'être recalculés sur toute la table.
+ * La contribution de chaque signalement est gardée pour pouvoir la retirer lors d'une
+ * mise à jour ou d'une suppression ; les totaux sont des LongAdder, sans verrou global.
+ * Surface et budget sont comptés en centièmes entiers : ajouts et retraits s'annulent
+ * exactement, sans dérive d'arrondi au fil des mises à jour. Recalcul exact au démarrage.
+ */
+@Component
+public class SignalementStats {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementStats.class);
+
+    private static final double MS_PER_DAY = 86_400_000d;
+    private static final long NO_DELAY = Long.MIN_VALUE;
+
+    private final SignalementRepository signalementRepository;
+    private final SignalementRowVersions rowVersions;
+
+    private final Map<String, Contribution> contributions = new ConcurrentHashMap<>();
+    private final SignalementVersionGate versions = new SignalementVersionGate();
+    private final LongAdder count = new LongAdder();
+    private final LongAdder nbTermine = new LongAdder();
+    // En centièmes (cm² près / centimes)
+    private final LongAdder totalSurfaceCents = new LongAdder();
+    private final LongAdder totalBudgetCents = new LongAdder();
+    private final Delay nouveauEnCours = new Delay();
+    private final Delay enCoursTermine = new Delay();
+    private final Delay nouveauTermine = new Delay();
+
+    public SignalementStats(SignalementRepository signalementRepository, SignalementRowVersions rowVersions) {
+        this.signalementRepository = signalementRepository;
+        this.rowVersions = rowVersions;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        SignalementRowVersions.Snapshot<SignalementView> snapshot = rowVersions.snapshot(signalementRepository::findAllViews);
+        List<SignalementView> all = snapshot.getRows();
+        versions.reset(snapshot.getVersion());
+        contributions.clear();
+        count.reset();
+        nbTermine.reset();
+        totalSurfaceCents.reset();
+        totalBudgetCents.reset();
+        nouveauEnCours.reset();
+        enCoursTermine.reset();
+        nouveauTermine.reset();
+        for (SignalementView v : all) {
+            Contribution c = new Contribution(v.getStatut(), v.getSurfaceM2(), v.getBudget(),
+                    v.getDateNouveau(), v.getDateEnCours(), v.getDateTermine());
+            contributions.put(v.getIdSignalement(), c);
+            add(c, 1);
+        }
+        log.info("Statistiques calculées sur {} signalements", all.size());
+    }
+
+    // synchronized : filtre des versions et application forment un tout, et la reconstruction
+    // (qui lit la table sous ce moniteur) ne peut pas écraser un événement
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onSignalementChanged(SignalementChangedEvent event) {
+        if (!versions.accept(event)) {
+            return;
+        }
+        Signalement s = event.getSignalement();
+        if (event.isDeleted()) {
+            contributions.computeIfPresent(s.getIdSignalement(), (id, previous) -> {
+                add(previous, -1);
+                return null;
+            });
+            return;
+        }
+        Contribution next = new Contribution(s.getStatut(), s.getSurfaceM2(), s.getBudget(),
+                s.getDateNouveau(), s.getDateEnCours(), s.getDateTermine());
+        // compute : les écritures concurrentes sur un même signalement se succèdent
+        contributions.compute(s.getIdSignalement(), (id, previous) -> {
+            if (previous != null) {
+                add(previous, -1);
+            }
+            add(next, 1);
+            return next;
+        });
+    }
+
+    private void add(Contribution c, int sign) {
+        count.add(sign);
+        nbTermine.add(c.termine ? sign : 0);
+        totalSurfaceCents.add(sign * c.surfaceCents);
+        totalBudgetCents.add(sign * c.budgetCents);
+        nouveauEnCours.add(c.delaiNouveauEnCours, sign);
+        enCoursTermine.add(c.delaiEnCoursTermine, sign);
+        nouveauTermine.add(c.delaiNouveauTermine, sign);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getTotalSurface() {
+        return totalSurfaceCents.sum() / 100.0;
+    }
+
+    public double getTotalBudget() {
+        return totalBudgetCents.sum() / 100.0;
+    }
+
+    /**
+     * Pourcentage de signalements terminés
+     */
+    public int getAvancement() {
+        long n = count.sum();
+        return n > 0 ? (int) Math.round(nbTermine.sum() * 100.0 / n) : 0;
+    }
+
+    public double getMoyenneNouveauEnCoursJours() {
+        return nouveauEnCours.averageDays();
+    }
+
+    public double getMoyenneEnCoursTermineJours() {
+        return enCoursTermine.averageDays();
+    }
+
+    public double getMoyenneTotaleJours() {
+        return nouveauTermine.averageDays();
+    }
+
+    /**
+     * Nombre de signalements dont le délai nouveau -> terminé est connu
+     */
+    public long getNombreSignalementsAnalyses() {
+        return nouveauTermine.count.sum();
+    }
+
+    /**
+     * Résumé servi par /api/stats (nombre de points, surface, avancement, budget)
+     */
+    public Map<String, Object> getResume() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("nbPoints", (int) getCount());
+        stats.put("totalSurface", getTotalSurface());
+        stats.put("avancement", getAvancement());
+        stats.put("totalBudget", getTotalBudget());
+        return stats;
+    }
+
+    /**
+     * Délais moyens servis par /api/stats/traitement, en jours arrondis au dixième
+     */
+    public Map<String, Object> getTraitement() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("moyenneNouveauEnCoursJours", Math.round(getMoyenneNouveauEnCoursJours() * 10) / 10.0);
+        stats.put("moyenneEnCoursTermineJours", Math.round(getMoyenneEnCoursTermineJours() * 10) / 10.0);
+        stats.put("moyenneTotaleJours", Math.round(getMoyenneTotaleJours() * 10) / 10.0);
+        stats.put("nombreSignalementsAnalyses", (int) getNombreSignalementsAnalyses());
+        return stats;
+    }
+
+    /**
+     * Ce qu'un signalement apporte aux totaux ; délai à NO_DELAY s'il n'est pas mesurable
+     */
+    private static final class Contribution {
+        final boolean termine;
+        final long surfaceCents;
+        final long budgetCents;
+        final long delaiNouveauEnCours;
+        final long delaiEnCoursTermine;
+        final long delaiNouveauTermine;
+
+        Contribution(String statut, Double surface, Double budget,
+                     Timestamp dateNouveau, Timestamp dateEnCours, Timestamp dateTermine) {
+            this.termine = "termine".equalsIgnoreCase(statut);
+            this.surfaceCents = surface != null ? Math.round(surface * 100) : 0;
+            this.budgetCents = budget != null ? Math.round(budget * 100) : 0;
+            this.delaiNouveauEnCours = delay(dateNouveau, dateEnCours);
+            this.delaiEnCoursTermine = delay(dateEnCours, dateTermine);
+            this.delaiNouveauTermine = delay(dateNouveau, dateTermine);
+        }
+
+        private static long delay(Timestamp from, Timestamp to) {
+            return from != null && to != null ? to.getTime() - from.getTime() : NO_DELAY;
+        }
+    }
+
+    private static final class Delay {
+        final LongAdder totalMillis = new LongAdder();
+        final LongAdder count = new LongAdder();
+
+        void add(long millis, int sign) {
+            // Un délai négatif (dates incohérentes) compte quand même, comme dans l'ancien calcul
+            if (millis != NO_DELAY) {
+                totalMillis.add(sign * millis);
+                count.add(sign);
+            }
+        }
+
+        void reset() {
+            totalMillis.reset();
+            count.reset();
+        }
+
+        double averageDays() {
+            long n = count.sum();
+            return n > 0 ? totalMillis.sum() / (double) n / MS_PER_DAY : 0;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.cloud.service;
+
+import com.cloud.dto.SignalementStatutEvent;
+import com.cloud.repository.SignalementStatutEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Historique des changements de statut : chaque transition est un événement ajouté
+ * (jamais modifié) dans une table partitionnée par mois. Les écritures de
+ * SignalementService l'alimentent dans leur propre transaction, par lots.
+ */
+@Service
+public class SignalementStatutHistory {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementStatutHistory.class);
+
+    private final SignalementStatutEventRepository eventRepository;
+    // Les partitions sont créées dans une transaction à part : un DDL ne doit pas
+    // partager la transaction (et les verrous) de l'écriture en cours
+    private final TransactionTemplate ddlTransaction;
+    private final Set<YearMonth> knownPartitions = ConcurrentHashMap.newKeySet();
+
+    public SignalementStatutHistory(SignalementStatutEventRepository eventRepository,
+                                    PlatformTransactionManager transactionManager) {
+        this.eventRepository = eventRepository;
+        this.ddlTransaction = new TransactionTemplate(transactionManager);
+        this.ddlTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        ddlTransaction.executeWithoutResult(status -> eventRepository.createSchema());
+        ensurePartitions(Set.of(YearMonth.now()));
+        if (eventRepository.isEmpty()) {
+            ensurePartitions(new TreeSet<>(eventRepository.findSignalementDateMonths()));
+            int created = ddlTransaction.execute(status -> eventRepository.backfillFromSignalementDates());
+            log.info("Historique des statuts initialisé à partir des dates d'avancement : {} événements", created);
+        }
+    }
+
+    /**
+     * Enregistre un changement de statut (rien si le statut ne change pas)
+     */
+    public void record(String idSignalement, String ancienStatut, String nouveauStatut, Timestamp date) {
+        if (nouveauStatut == null || nouveauStatut.equals(ancienStatut)) {
+            return;
+        }
+        recordAll(List.of(new SignalementStatutEvent(null, idSignalement, ancienStatut, nouveauStatut, date)));
+    }
+
+    /**
+     * Enregistre un lot de transitions en un seul batch
+     */
+    public void recordAll(List<SignalementStatutEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        Set<YearMonth> months = new TreeSet<>();
+        for (SignalementStatutEvent e : events) {
+            months.add(YearMonth.from(e.getDateEvent().toLocalDateTime()));
+        }
+        ensurePartitions(months);
+        eventRepository.appendAll(events);
+    }
+
+    public List<SignalementStatutEvent> getTimeline(String idSignalement) {
+        return eventRepository.findTimeline(idSignalement);
+    }
+
+    public List<SignalementStatutEvent> getStatutsAt(Timestamp at) {
+        return eventRepository.findStatutsAt(at);
+    }
+
+    // Crée aussi le mois suivant à l'avance : le DDL a lieu bien avant le premier événement du mois
+    private void ensurePartitions(Set<YearMonth> months) {
+        for (YearMonth month : months) {
+            for (YearMonth m : List.of(month, month.plusMonths(1))) {
+                if (!knownPartitions.contains(m)) {
+                    synchronized (knownPartitions) {
+                        if (!knownPartitions.contains(m)) {
+                            ddlTransaction.executeWithoutResult(status -> eventRepository.createPartition(m));
+                            knownPartitions.add(m);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
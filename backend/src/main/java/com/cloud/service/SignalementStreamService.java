@@ -0,0 +1,271 @@
+package com.cloud.service;
+
+import com.cloud.dto.BoundingBox;
+import com.cloud.dto.SignalementMarker;
+import com.cloud.event.SignalementChangedEvent;
+import com.cloud.model.Signalement;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Flux Server-Sent Events des changements de signalements, pour la carte.
+ * L'identifiant de chaque événement est la version de ligne (même jeton que
+ * /api/signalements/changes) : un client qui se reconnecte avec Last-Event-ID
+ * reçoit ce qu'il a manqué depuis un tampon circulaire, ou un événement "reset"
+ * l'invitant à passer par /changes si l'écart est trop grand.
+ *
+ * Une connexion inactive ne coûte qu'une requête asynchrone en attente : aucun
+ * thread ne lui est réservé. Les envois passent par une file bornée par client,
+ * vidée par un petit pool ; un client trop lent est déconnecté plutôt que de
+ * bloquer la publication (EventSource se reconnecte et reprend seul).
+ */
+@Service
+public class SignalementStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(SignalementStreamService.class);
+
+    private static final long EMITTER_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(30);
+    private static final long HEARTBEAT_SECONDS = 25;
+    private static final int REPLAY_BUFFER_SIZE = 1024;
+    private static final int CLIENT_QUEUE_SIZE = 256;
+    private static final int MAX_SUBSCRIBERS = 10_000;
+    private static final int SENDER_THREADS = 4;
+
+    private final ObjectMapper objectMapper;
+    private final SignalementRowVersions rowVersions;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    // Derniers événements publiés, dans l'ordre de publication (les listeners après commit
+    // peuvent inverser deux versions) ; protégé par synchronized (replay)
+    private final Deque<Frame> replay = new ArrayDeque<>();
+    private final ExecutorService senders = Executors.newFixedThreadPool(SENDER_THREADS, daemon("sse-sender"));
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(daemon("sse-heartbeat"));
+
+    public SignalementStreamService(ObjectMapper objectMapper, SignalementRowVersions rowVersions) {
+        this.objectMapper = objectMapper;
+        this.rowVersions = rowVersions;
+        heartbeat.scheduleAtFixedRate(this::sendHeartbeats, HEARTBEAT_SECONDS, HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * @param bbox        zone suivie par le client, null pour tout recevoir
+     * @param lastEventId valeur de l'en-tête Last-Event-ID, null à la première connexion
+     * @throws IllegalStateException si le nombre maximal de connexions est atteint
+     */
+    public SseEmitter subscribe(BoundingBox bbox, String lastEventId) {
+        if (subscribers.size() >= MAX_SUBSCRIBERS) {
+            throw new IllegalStateException("Trop de connexions au flux, réessayez plus tard");
+        }
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        Subscriber subscriber = new Subscriber(emitter, bbox);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(emitter::complete);
+        emitter.onError(e -> subscribers.remove(subscriber));
+
+        // Rattrapage et inscription sous le même verrou que la publication : rien ne passe entre les deux
+        synchronized (replay) {
+            if (lastEventId != null && !lastEventId.isBlank()) {
+                resume(subscriber, lastEventId.trim());
+            }
+            subscribers.add(subscriber);
+        }
+        subscriber.schedule();
+        return emitter;
+    }
+
+    // Appelé sous verrou replay
+    private void resume(Subscriber subscriber, String lastEventId) {
+        long lastId;
+        try {
+            lastId = Long.parseLong(lastEventId);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        List<Frame> missed = new ArrayList<>();
+        boolean found = false;
+        Iterator<Frame> it = replay.descendingIterator();
+        while (it.hasNext()) {
+            Frame frame = it.next();
+            if (frame.id == lastId) {
+                found = true;
+                break;
+            }
+            if (subscriber.accepts(frame)) {
+                missed.add(frame);
+            }
+        }
+        if (!found || missed.size() > CLIENT_QUEUE_SIZE) {
+            // Une version inférieure à lastId peut ne pas être encore publiée : /changes doit la renvoyer
+            subscriber.queue.offer(Frame.reset(Math.min(lastId, rowVersions.lowestInFlight() - 1)));
+            return;
+        }
+        for (int i = missed.size() - 1; i >= 0; i--) {
+            subscriber.queue.offer(missed.get(i));
+        }
+    }
+
+    // Avant le retrait de la version des transactions en cours (SignalementRowVersions.lowestInFlight)
+    @Order(Ordered.LOWEST_PRECEDENCE - 1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSignalementChanged(SignalementChangedEvent event) {
+        Signalement s = event.getSignalement();
+        Object payload = event.isDeleted()
+                ? Map.of("idSignalement", s.getIdSignalement())
+                : SignalementMarker.from(s);
+        // Sérialisé une seule fois, quel que soit le nombre de clients
+        Frame frame = new Frame(event.getVersion(), event.getType().name().toLowerCase(),
+                objectMapper.writeValueAsString(payload), s.getLatitude(), s.getLongitude());
+
+        List<Subscriber> toWake = new ArrayList<>();
+        synchronized (replay) {
+            replay.addLast(frame);
+            if (replay.size() > REPLAY_BUFFER_SIZE) {
+                replay.removeFirst();
+            }
+            for (Subscriber subscriber : subscribers) {
+                if (subscriber.accepts(frame)) {
+                    if (!subscriber.queue.offer(frame)) {
+                        subscriber.overflowed.set(true);
+                    }
+                    toWake.add(subscriber);
+                }
+            }
+        }
+        toWake.forEach(Subscriber::schedule);
+    }
+
+    private void sendHeartbeats() {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.queue.isEmpty() && subscriber.queue.offer(Frame.HEARTBEAT)) {
+                subscriber.schedule();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        senders.shutdownNow();
+        subscribers.forEach(s -> s.emitter.complete());
+        subscribers.clear();
+    }
+
+    private static ThreadFactory daemon(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, prefix + "-" + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Un événement prêt à envoyer. id &lt; 0 : pas d'identifiant (heartbeat, reset)
+     */
+    private static final class Frame {
+        static final Frame HEARTBEAT = new Frame(-1, null, null, Double.NaN, Double.NaN);
+
+        final long id;
+        final String name;
+        final String data;
+        final double latitude;
+        final double longitude;
+
+        Frame(long id, String name, String data, double latitude, double longitude) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+            this.latitude = latitude;
+            this.longitude = longitude;
+        }
+
+        static Frame reset(long since) {
+            return new Frame(-1, "reset", "{\"since\":" + since + "}", Double.NaN, Double.NaN);
+        }
+
+        SseEmitter.SseEventBuilder toEvent() {
+            if (this == HEARTBEAT) {
+                return SseEmitter.event().comment("ping");
+            }
+            SseEmitter.SseEventBuilder event = SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON);
+            return id >= 0 ? event.id(String.valueOf(id)) : event;
+        }
+    }
+
+    private final class Subscriber {
+        final SseEmitter emitter;
+        final BoundingBox bbox;
+        final Queue<Frame> queue = new ArrayBlockingQueue<>(CLIENT_QUEUE_SIZE);
+        final AtomicBoolean scheduled = new AtomicBoolean();
+        final AtomicBoolean overflowed = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, BoundingBox bbox) {
+            this.emitter = emitter;
+            this.bbox = bbox;
+        }
+
+        boolean accepts(Frame frame) {
+            return bbox == null || Double.isNaN(frame.latitude) || bbox.contains(frame.latitude, frame.longitude);
+        }
+
+        void schedule() {
+            if (!queue.isEmpty() || overflowed.get()) {
+                if (scheduled.compareAndSet(false, true)) {
+                    senders.execute(this::drain);
+                }
+            }
+        }
+
+        // Un seul drain à la fois par client (drapeau scheduled) : les envois restent ordonnés
+        private void drain() {
+            try {
+                if (overflowed.get()) {
+                    // Client trop lent : on coupe, il se reconnectera avec son dernier Last-Event-ID
+                    subscribers.remove(this);
+                    queue.clear();
+                    emitter.complete();
+                    return;
+                }
+                Frame frame;
+                while ((frame = queue.poll()) != null) {
+                    emitter.send(frame.toEvent());
+                }
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Client SSE déconnecté : {}", e.getMessage());
+                subscribers.remove(this);
+                queue.clear();
+                return;
+            } finally {
+                scheduled.set(false);
+            }
+            schedule();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.cloud.service;
+
+import com.cloud.dto.BoundingBox;
+import com.cloud.dto.SignalementMarker;
+import com.cloud.event.SignalementChangedEvent;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tuiles vectorielles (MVT) des signalements, produites à partir de l'index spatial
+ * et gardées en cache. Quand un signalement change, seules les tuiles qui couvrent
+ * son ancienne et sa nouvelle position sont invalidées.
+ */
+@Service
+public class SignalementTileService {
+
+    public static final int MAX_ZOOM = 22;
+    public static final String LAYER_NAME = "signalements";
+
+    private static final int MAX_CACHED_TILES = 4096;
+    // Marge autour de la tuile (en unités d'extent) pour ne pas couper les symboles en bordure
+    private static final int BUFFER = 64;
+
+    private final SignalementSpatialIndex spatialIndex;
+
+    private final Map<Long, byte[]> cache = Collections.synchronizedMap(
+            new LinkedHashMap<Long, byte[]>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, byte[]> eldest) {
+                    return size() > MAX_CACHED_TILES;
+                }
+            });
+    // Dernière position rendue de chaque signalement, pour invalider l'ancienne tuile après un déplacement
+    private final Map<String, double[]> renderedPositions = new ConcurrentHashMap<>();
+    // Incrémenté à chaque invalidation : une tuile rendue pendant une écriture n'est pas mise en cache
+    private final AtomicLong generation = new AtomicLong();
+
+    public SignalementTileService(SignalementSpatialIndex spatialIndex) {
+        this.spatialIndex = spatialIndex;
+    }
+
+    /**
+     * @throws IllegalArgumentException si z/x/y ne désignent pas une tuile valide
+     */
+    public byte[] getTile(int z, int x, int y) {
+        if (z < 0 || z > MAX_ZOOM) {
+            throw new IllegalArgumentException("Zoom hors limites (0-" + MAX_ZOOM + ")");
+        }
+        long n = 1L << z;
+        if (x < 0 || y < 0 || x >= n || y >= n) {
+            throw new IllegalArgumentException("Tuile inexistante à ce zoom");
+        }
+        long key = tileKey(z, x, y);
+        byte[] tile = cache.get(key);
+        if (tile == null) {
+            long before = generation.get();
+            tile = render(z, x, y);
+            if (generation.get() == before) {
+                cache.put(key, tile);
+                // Invalidation survenue entre la vérification et le put : elle a pu passer avant le put
+                if (generation.get() != before) {
+                    cache.remove(key);
+                }
+            }
+        }
+        return tile;
+    }
+
+    private byte[] render(int z, int x, int y) {
+        double n = 1L << z;
+        double margin = (double) BUFFER / MvtEncoder.EXTENT;
+        BoundingBox bbox = new BoundingBox(
+                tileLat(y + 1 + margin, n), Math.max(-180, tileLng(x - margin, n)),
+                tileLat(y - margin, n), Math.min(180, tileLng(x + 1 + margin, n)));
+        List<SignalementMarker> markers = spatialIndex.findInBoundingBox(bbox);
+        for (SignalementMarker m : markers) {
+            renderedPositions.put(m.getIdSignalement(), new double[]{m.getLatitude(), m.getLongitude()});
+        }
+        return MvtEncoder.encode(LAYER_NAME, markers, z, x, y);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSignalementChanged(SignalementChangedEvent event) {
+        generation.incrementAndGet();
+        double lat = event.getSignalement().getLatitude();
+        double lng = event.getSignalement().getLongitude();
+        double[] previous = renderedPositions.remove(event.getSignalement().getIdSignalement());
+        if (previous != null && (previous[0] != lat || previous[1] != lng)) {
+            invalidate(previous[0], previous[1]);
+        }
+        // Pour une suppression, (lat, lng) est la dernière position connue
+        invalidate(lat, lng);
+    }
+
+    /**
+     * Retire du cache, à chaque zoom, les tuiles dont la zone (marge comprise) contient le point
+     */
+    private void invalidate(double lat, double lng) {
+        double mx = SignalementClusterIndex.mercatorX(lng);
+        double my = SignalementClusterIndex.mercatorY(lat);
+        double margin = (double) BUFFER / MvtEncoder.EXTENT;
+        for (int z = 0; z <= MAX_ZOOM; z++) {
+            long n = 1L << z;
+            double fx = mx * n;
+            double fy = my * n;
+            for (long tx = (long) Math.floor(fx - margin); tx <= (long) Math.floor(fx + margin); tx++) {
+                for (long ty = (long) Math.floor(fy - margin); ty <= (long) Math.floor(fy + margin); ty++) {
+                    if (tx >= 0 && ty >= 0 && tx < n && ty < n) {
+                        cache.remove(tileKey(z, (int) tx, (int) ty));
+                    }
+                }
+            }
+        }
+    }
+
+    private static double tileLng(double x, double n) {
+        return x / n * 360d - 180d;
+    }
+
+    private static double tileLat(double y, double n) {
+        double lat = Math.toDegrees(Math.atan(Math.sinh(Math.PI * (1 - 2 * y / n))));
+        return Math.max(-90, Math.min(90, lat));
+    }
+
+    // z sur 5 bits, x et y sur 29 bits chacun (suffisant jusqu'au zoom 22)
+    private static long tileKey(int z, int x, int y) {
+        return ((long) z << 58) | ((long) x << 29) | y;
+    }
+}
@@ -0,0 +1,45 @@
+package com.cloud.service;
+
+import com.cloud.event.SignalementChangedEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Filtre des événements d'un index en mémoire. Les listeners après commit tournent une fois
+ * le verrou d'attribution des versions relâché : deux écritures d'un même signalement peuvent
+ * y arriver dans le désordre, et une écriture déjà lue par la reconstruction peut arriver après.
+ * On garde la dernière version appliquée de chaque signalement (suppressions comprises) et on
+ * écarte les plus anciennes. Non synchronisé : à utiliser sous le verrou d'écriture de l'index.
+ */
+final class SignalementVersionGate {
+
+    private final Map<String, Long> applied = new HashMap<>();
+    // Plus grande version lue par la dernière reconstruction
+    private long floor = -1;
+
+    void reset(long floor) {
+        applied.clear();
+        this.floor = floor;
+    }
+
+    /**
+     * @return false si l'index reflète déjà cette écriture ou une plus récente
+     */
+    boolean accept(SignalementChangedEvent event) {
+        long version = event.getVersion();
+        if (version == 0) {
+            // Version inconnue : appliqué tel quel
+            return true;
+        }
+        if (version <= floor) {
+            return false;
+        }
+        Long last = applied.get(event.getSignalement().getIdSignalement());
+        if (last != null && version <= last) {
+            return false;
+        }
+        applied.put(event.getSignalement().getIdSignalement(), version);
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package com.cloud.service;
+
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Regroupement des lectures identiques simultanées : le premier appelant d'une clé calcule
+ * et sérialise la réponse, ceux qui arrivent pendant le calcul attendent et reçoivent les
+ * mêmes octets. Rien n'est gardé une fois le calcul terminé (ce n'est pas un cache).
+ */
+@Component
+public class SingleFlight {
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    public SingleFlight(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * JSON de compute.get(), partagé par tous les appels concurrents de même clé
+     *
+     * @param timeout attente maximale d'un appelant qui n'a pas lancé le calcul
+     * @throws IllegalStateException si l'attente dépasse timeout
+     */
+    public byte[] json(String key, Duration timeout, Supplier<?> compute) {
+        CompletableFuture<byte[]> mine = new CompletableFuture<>();
+        CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            return await(running, timeout);
+        }
+        try {
+            byte[] bytes = objectMapper.writeValueAsBytes(compute.get());
+            mine.complete(bytes);
+            return bytes;
+        } catch (RuntimeException | Error e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static byte[] await(CompletableFuture<byte[]> running, Duration timeout) {
+        try {
+            return running.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Calcul en cours trop long, réessayer plus tard");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Attente interrompue", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+}
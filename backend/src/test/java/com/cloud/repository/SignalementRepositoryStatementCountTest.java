@@ -0,0 +1,110 @@
+package com.cloud.repository;
+
+import com.cloud.GestionRoutiereApplication;
+import com.cloud.dto.SignalementDetail;
+import com.cloud.dto.SignalementView;
+import com.cloud.model.Signalement;
+import com.cloud.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.data.jpa.test.autoconfigure.DataJpaTest;
+import org.springframework.boot.jpa.test.autoconfigure.TestEntityManager;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ContextConfiguration;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Garde-fou contre le N+1 : chaque lecture de liste ou de détail doit rester une seule
+ * requête SQL, quel que soit le nombre de signalements et d'auteurs distincts.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+// Deux classes @SpringBootApplication dans com.cloud : on désigne celle du packaging
+@ContextConfiguration(classes = GestionRoutiereApplication.class)
+class SignalementRepositoryStatementCountTest {
+
+    private static final int USERS = 5;
+    private static final int SIGNALEMENTS = 30;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private SignalementRepository signalementRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        User[] users = new User[USERS];
+        for (int i = 0; i < USERS; i++) {
+            User u = new User();
+            u.setEmail("user" + i + "@example.com");
+            u.setPassword("x");
+            u.setRole("user");
+            users[i] = entityManager.persist(u);
+        }
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < SIGNALEMENTS; i++) {
+            Signalement s = new Signalement();
+            s.setIdSignalement(String.format("S%03d", i));
+            s.setTitre("Nid de poule " + i);
+            s.setLatitude(-18.9 + i * 0.001);
+            s.setLongitude(47.5 + i * 0.001);
+            s.setStatut("nouveau");
+            s.setDateSignalement(new Timestamp(now - i * 60_000L));
+            s.setUtilisateur(users[i % USERS]);
+            entityManager.persist(s);
+        }
+        entityManager.flush();
+        // Les lectures ne doivent pas être servies par le contexte de persistance
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllViewsIsOneStatement() {
+        List<SignalementView> views = signalementRepository.findAllViews();
+
+        assertThat(views).hasSize(SIGNALEMENTS);
+        assertThat(views).allSatisfy(v -> assertThat(v.getUtilisateur().getEmail()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void keysetPageIsOneStatement() {
+        List<SignalementView> page = signalementRepository.findKeysetPage(Specification.unrestricted(), 11).stream()
+                .map(SignalementView::from)
+                .toList();
+
+        assertThat(page).hasSize(11);
+        assertThat(page.get(0).getIdSignalement()).isEqualTo("S000");
+        assertThat(page).allSatisfy(v -> assertThat(v.getUtilisateur().getEmail()).isNotNull());
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void detailIsOneStatement() {
+        SignalementDetail detail = signalementRepository.findWithUtilisateurByIdSignalement("S007")
+                .map(SignalementDetail::from)
+                .orElseThrow();
+
+        assertThat(detail.getUtilisateur().getEmail()).isEqualTo("user2@example.com");
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+}